@@ -0,0 +1,115 @@
+// SessionBenchmark.java
+//
+// By Sebastian Raaphorst, 2018.
+
+import com.vorpal.toggle.board.Board;
+import com.vorpal.toggle.board.BoardType;
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.game.GameSession;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.utils.BigMath;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Stress a GameSession with thousands of players submitting words at once, on pools of 1, 2, 4, ... threads up to
+ * twice the number of processors, and report the submissions per second.
+ *
+ * For comparison, the same submissions are made to a session kept in synchronized collections, i.e. a map from
+ * players to their sets of words and a map from words to their numbers of finders, guarded by a single lock.
+ */
+public class SessionBenchmark {
+    // The number of players, and the number of words that each submits.
+    private static final int PLAYERS = 5000;
+    private static final int SUBMISSIONS = 200;
+
+    /**
+     * The straightforward session, for comparison.
+     */
+    private static final class SynchronizedSession {
+        private final Set<String> words;
+        private final Map<String, Set<String>> found = new HashMap<>();
+        private final Map<String, Integer> finders = new HashMap<>();
+
+        SynchronizedSession(final List<String> words) {
+            this.words = new HashSet<>(words);
+        }
+
+        synchronized void submit(final String player, final String word) {
+            final Set<String> playerWords = found.computeIfAbsent(player, p -> new HashSet<>());
+            final String w = word.toUpperCase(Locale.ROOT);
+            if (words.contains(w) && playerWords.add(w))
+                finders.merge(w, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Make all of the submissions on a pool, and report the throughput.
+     * @param submissions the words submitted by each player
+     * @param threads the number of threads
+     * @param submit the submission
+     * @return the submissions per second
+     */
+    private static double measure(final List<List<String>> submissions, final int threads,
+                                  final BiConsumer<String, String> submit) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            final long start = System.nanoTime();
+            for (int p = 0; p < submissions.size(); ++p) {
+                final String player = "player" + p;
+                final List<String> words = submissions.get(p);
+                futures.add(executor.submit(() -> words.forEach(w -> submit.accept(player, w))));
+            }
+            for (final Future<?> future: futures)
+                future.get();
+            final long elapsed = System.nanoTime() - start;
+            return (double) PLAYERS * SUBMISSIONS * 1e9 / elapsed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Board board = new Board(BoardType.TORUS, DefaultDiceSets.DEFAULT_25_DICE_SET,
+                BigMath.unrankPermutationAsList(25, BigInteger.valueOf(9223372036854775807L)),
+                BigMath.unrankDiceFacesAsList(25, BigInteger.valueOf(839283)),
+                Trie.createDefaultTrie(), 3);
+        final List<String> words = board.getWords();
+
+        // Each player submits mostly words on the board, favouring the short, common ones, and some that are not.
+        final Random random = new Random(0);
+        final List<List<String>> submissions = new ArrayList<>(PLAYERS);
+        for (int p = 0; p < PLAYERS; ++p) {
+            final List<String> playerWords = new ArrayList<>(SUBMISSIONS);
+            for (int i = 0; i < SUBMISSIONS; ++i) {
+                final int index = (int) (words.size() * Math.pow(random.nextDouble(), 3));
+                playerWords.add(random.nextInt(10) == 0 ? "XQZ" + i : words.get(index));
+            }
+            submissions.add(playerWords);
+        }
+
+        final int processors = Runtime.getRuntime().availableProcessors();
+        System.out.format("%d processors, %d words on the board, %d players submitting %d words each.\n\n",
+                processors, words.size(), PLAYERS, SUBMISSIONS);
+        for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+            // Warm up, and then measure, each on a fresh session.
+            measure(submissions, threads, new GameSession(board)::submit);
+            final GameSession session = new GameSession(board);
+            final double lockFree = measure(submissions, threads, session::submit);
+
+            measure(submissions, threads, new SynchronizedSession(words)::submit);
+            final double locked = measure(submissions, threads, new SynchronizedSession(words)::submit);
+
+            System.out.format("%2d threads: GameSession %12.0f submissions/sec, synchronized %12.0f submissions/sec\n",
+                    threads, lockFree, locked);
+            System.out.format("            %d of %d words found, %d players scored\n",
+                    session.getNumberOfWordsFound(), session.getNumberOfWords(), session.getScores().size());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+// SolverBenchmark.java
+//
+// By Sebastian Raaphorst, 2018.
+
+import com.vorpal.toggle.board.BatchSolver;
+import com.vorpal.toggle.board.Board;
+import com.vorpal.toggle.board.BoardSolver;
+import com.vorpal.toggle.board.BoardSpec;
+import com.vorpal.toggle.board.BoardType;
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.dice.DiceSet;
+import com.vorpal.toggle.trie.SymbolTrie;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.utils.BigMath;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Measure the latency of solving single large boards, sequentially and in parallel on pools of increasing size, to
+ * see how the parallel solve scales across cores.
+ *
+ * For each board size from 5x5 up to 32x32, and for the torus and projective plane, the same sample of boards is
+ * solved sequentially and then on pools of 1, 2, 4, ... threads, up to the number of processors. The average time per
+ * board and the speedup over the sequential solve are reported. Sizes other than 5x5 use a dice set generated from
+ * the dice of the 5x5 set.
+ *
+ * Then, for the throughput of many small boards, a batch of 4x4 boards is solved with a BatchSolver on pools of 1, 2,
+ * 4, ... threads.
+ */
+public class SolverBenchmark {
+    // The number of boards to solve for each measurement, and the number of times to solve them before measuring.
+    private static final int BOARDS = 50;
+    private static final int WARMUP = 3;
+
+    // The sides of the boards to solve.
+    private static final int[] SIDES = {5, 6, 7, 16, DiceSet.MAX_SIDE};
+
+    // The number of boards to solve in a batch.
+    private static final int BATCH = 20000;
+
+    /**
+     * Create a dice set of a given side, generated from the dice of the 5x5 set.
+     * @param side the side
+     * @return the dice set
+     */
+    private static DiceSet diceSet(final int side) {
+        final DiceSet base = DefaultDiceSets.DEFAULT_25_DICE_SET;
+        if (side == base.getSide())
+            return base;
+        return DiceSet.generate(side + "x" + side, side, side, base);
+    }
+
+    private interface Solve {
+        BoardSolver.Solution solve(Board board);
+    }
+
+    /**
+     * Solve the boards, and report the average time per board.
+     * @param boards the boards
+     * @param solve the solve to measure
+     * @return the average time per board, in nanoseconds
+     */
+    private static double measure(final List<Board> boards, final Solve solve) {
+        long words = 0;
+        for (int i = 0; i < WARMUP; ++i)
+            for (final Board board: boards)
+                words += solve.solve(board).getNumberOfWords();
+
+        final long start = System.nanoTime();
+        for (final Board board: boards)
+            words += solve.solve(board).getNumberOfWords();
+        final long elapsed = System.nanoTime() - start;
+
+        // Use the result, so that the solves cannot be optimized away.
+        if (words < 0)
+            System.out.println(words);
+        return (double) elapsed / boards.size();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Trie trie = Trie.createDefaultTrie();
+        final int processors = Runtime.getRuntime().availableProcessors();
+        System.out.format("%d processors, %d boards per measurement.\n\n", processors, BOARDS);
+
+        for (final int side: SIDES) {
+            final DiceSet diceSet = diceSet(side);
+            final BoardSolver solver = new BoardSolver(SymbolTrie.of(trie, diceSet.getAlphabet()), 3);
+            for (final BoardType boardType: new BoardType[] {BoardType.TORUS, BoardType.PROJECTIVE_PLANE}) {
+                final int n = diceSet.getNumberOfDice();
+                final List<Board> boards = new ArrayList<>(BOARDS);
+                for (int i = 0; i < BOARDS; ++i)
+                    boards.add(new Board(boardType, diceSet,
+                            BigMath.unrankPermutationAsList(n, BigInteger.valueOf(7919L * i)),
+                            BigMath.unrankDiceFacesAsList(n, BigInteger.valueOf(104729L * i))));
+
+                System.out.format("%s, %dx%d:\n", boardType, side, side);
+                final double sequential = measure(boards, solver::solve);
+                System.out.format("\t* Sequential:      %8.3f ms\n", sequential / 1e6);
+                for (int threads = 1; threads <= processors; threads *= 2) {
+                    final ForkJoinPool pool = new ForkJoinPool(threads);
+                    try {
+                        final double parallel = measure(boards, b -> solver.solveParallel(b, pool));
+                        System.out.format("\t* %2d threads:      %8.3f ms, speedup %5.2f\n",
+                                threads, parallel / 1e6, sequential / parallel);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+                System.out.println();
+            }
+        }
+
+        // The throughput of solving many small boards, batched across pools of increasing size.
+        for (int threads = 1; threads <= processors; threads *= 2)
+            try (final BatchSolver batch = new BatchSolver(trie, 3, threads, 64 * threads)) {
+                final long[] words = new long[1];
+                final BatchSolver.Statistics statistics = batch.solve(
+                        LongStream.range(0, BATCH).mapToObj(i -> new BoardSpec(BoardType.GRID,
+                                DefaultDiceSets.DEFAULT_16_DICE_SET, 7919L * i, 104729L * i)),
+                        false, r -> words[0] += r.getSolution().getNumberOfWords());
+                System.out.format("Batch of 4x4 boards, %2d threads: %s\n", threads, statistics);
+            }
+    }
+}
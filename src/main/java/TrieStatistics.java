@@ -2,9 +2,11 @@
 //
 // By Sebastian Raaphorst, 2018.
 
-import com.vorpal.toggle.trie.LinkedTrie;
+import com.vorpal.toggle.trie.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -12,6 +14,9 @@ import java.util.Optional;
  * Take a dictionary, make it into a trie.
  * Then take the trie and perform a packing algorithm on it.
  * Compute some statistics on each of the two tries, and compare them.
+ * Finally, minimize the dictionary into a DAWG, and compare its node and edge counts to those of the tries, and
+ * encode the dictionary as a succinct LOUDS trie to see how many bits per node it requires.
+ * Lastly, profile each of the trie implementations for build time, heap use, and lookup cost.
  */
 public class TrieStatistics {
     private static final int THRESHOLD = 25;
@@ -19,7 +24,9 @@ public class TrieStatistics {
     private static void displayStats(LinkedTrie.TrieStatistics stats) {
         System.out.format("\t* Number of nodes: %8d\n", stats.nodes);
         System.out.format("\t* Height of trie:  %8d\n", stats.height);
-        System.out.format("\t* Number of words: %8d\n\n", stats.words);
+        System.out.format("\t* Number of words: %8d\n", stats.words);
+        System.out.format("\t* Size in bytes:   %8d (estimated)\n", stats.bytes);
+        System.out.format("\t* Bytes per node:  %8.2f\n\n", stats.bytesPerNode());
         System.out.println("Number of nodes containing strings of length:");
         stats.nodesByCharCount.forEach((k,v) ->
                 System.out.format("%4d %7d\n", k, v)
@@ -54,6 +61,32 @@ public class TrieStatistics {
         }
     }
 
+    private static void displayStats(DawgTrie.DawgStatistics stats) {
+        System.out.format("\t* Number of nodes: %8d\n", stats.nodes);
+        System.out.format("\t* Number of edges: %8d\n", stats.edges);
+        System.out.format("\t* Height of DAWG:  %8d\n", stats.height);
+        System.out.format("\t* Number of words: %8d\n\n", stats.words);
+        System.out.println("Number of nodes with in-degree:");
+        stats.nodesByInDegree.forEach((k,v) ->
+                System.out.format("%4d %7d\n", k, v)
+        );
+    }
+
+    private static void displayProfile(final TrieProfile profile) {
+        System.out.format("%s:\n", profile.name);
+        System.out.format("\t* Build time:      %8.1f ms\n", profile.buildNanos / 1e6);
+        System.out.format("\t* Heap (estimate): %8d bytes\n", profile.heapBytes);
+        profile.heapUsage.forEach((k,v) ->
+                System.out.format("\t    %-13s %8d bytes\n", k, v)
+        );
+        System.out.format("\t* isPrefix:        %8.2f nodes on average, %d at most, %6.1f ns\n",
+                profile.prefixCost.averageNodesVisited(), profile.prefixCost.maximumNodesVisited,
+                profile.prefixCost.nanosPerLookup());
+        System.out.format("\t* isWord:          %8.2f nodes on average, %d at most, %6.1f ns\n\n",
+                profile.wordCost.averageNodesVisited(), profile.wordCost.maximumNodesVisited,
+                profile.wordCost.nanosPerLookup());
+    }
+
     public static void main(String[] args) {
         System.out.print("READING TRIE... ");
         final LinkedTrie trie = new LinkedTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt"));
@@ -68,5 +101,49 @@ public class TrieStatistics {
         final LinkedTrie.TrieStatistics stats2 = trie.analyze();
         System.out.println("Statistics:");
         displayStats(stats2);
+        System.out.format("\nBytes relative to unpacked trie: %6.2f%%\n", 100.0 * stats2.bytes / stats1.bytes);
+
+        System.out.print("\n\nMINIMIZING DAWG... ");
+        final DawgTrie dawg = new DawgTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt"));
+        System.out.println("done.\n");
+        final DawgTrie.DawgStatistics stats3 = dawg.analyze();
+        System.out.println("Statistics:");
+        displayStats(stats3);
+
+        // In a trie, every node but the root has exactly one incoming edge.
+        System.out.format("\nNodes relative to unpacked trie: %6.2f%%\n", 100.0 * stats3.nodes / stats1.nodes);
+        System.out.format("Edges relative to unpacked trie: %6.2f%%\n", 100.0 * stats3.edges / (stats1.nodes - 1));
+
+        System.out.print("\n\nENCODING LOUDS TRIE... ");
+        final LoudsTrie louds = new LoudsTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt"));
+        System.out.println("done.\n");
+        System.out.println("Statistics:");
+        System.out.format("\t* Number of nodes: %8d\n", louds.getNumberOfNodes());
+        System.out.format("\t* Number of words: %8d\n", louds.getNumberOfWords());
+        System.out.format("\t* Size in bytes:   %8d\n", louds.getSizeInBits() / Byte.SIZE);
+        System.out.format("\t* Bits per node:   %8.2f\n", louds.getBitsPerNode());
+
+        // Query every word, and every word reversed, which is usually a miss.
+        System.out.println("\n\nPROFILING TRIES...\n");
+        final List<String> queries = new ArrayList<>();
+        louds.dump(queries::add);
+        final int words = queries.size();
+        for (int i = 0; i < words; ++i)
+            queries.add(new StringBuilder(queries.get(i)).reverse().toString());
+
+        displayProfile(TrieProfile.profile("LinkedTrie", () ->
+                new LinkedTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt")), queries));
+        displayProfile(TrieProfile.profile("Packed LinkedTrie", () -> {
+            final LinkedTrie packed = new LinkedTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt"));
+            packed.pack();
+            return packed;
+        }, queries));
+        displayProfile(TrieProfile.profile("DoubleArrayTrie", () ->
+                new DoubleArrayTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt")), queries));
+        displayProfile(TrieProfile.profile("Default trie", Trie::createDefaultTrie, queries));
+        displayProfile(TrieProfile.profile("DawgTrie", () ->
+                new DawgTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt")), queries));
+        displayProfile(TrieProfile.profile("LoudsTrie", () ->
+                new LoudsTrie(TrieStatistics.class.getResourceAsStream("/dictionary.txt")), queries));
     }
 }
@@ -0,0 +1,147 @@
+// AdjacencyTable.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.utils.Coordinates;
+import com.vorpal.utils.Dimensions;
+
+import java.util.Arrays;
+
+/**
+ * The adjacencies of every cell of a board of a given type and size, computed once and stored compactly, so that a
+ * search can look up the neighbours of a cell without any allocation.
+ *
+ * Cells are numbered by index, i.e. the cell at (x, y) has index x * h + y, where h is the height of the board, i.e.
+ * the extent of y, which for square boards is as per BigMath.pairToIndex. The neighbours are stored in compressed
+ * sparse row form: the neighbours of cell i are target(start(i)), ..., target(end(i) - 1), in increasing order of
+ * index. Thus, a search loops as:
+ *
+ *    for (int j = table.start(i); j &lt; table.end(i); ++j) {
+ *        final int neighbour = table.target(j);
+ *        ...
+ *    }
+ *
+ * An adjacency table is immutable, and is shared by all boards of the same type and size.
+ * @see BoardType#adjacencyTable
+ */
+public final class AdjacencyTable {
+    private final int width;
+    private final int height;
+
+    // The neighbours of cell i are targets[offsets[i]], ..., targets[offsets[i+1] - 1].
+    private final int[] offsets;
+    private final int[] targets;
+
+    /**
+     * Compute the adjacency table for a board type and size.
+     * @param boardType the board type
+     * @param d the dimensions of the board, i.e. its width and height
+     */
+    AdjacencyTable(final BoardType boardType, final Dimensions d) {
+        width = d.first;
+        height = d.second;
+
+        final int cells = width * height;
+        offsets = new int[cells + 1];
+        int[] all = new int[8 * cells];
+        int size = 0;
+        for (int x = 0; x < width; ++x)
+            for (int y = 0; y < height; ++y) {
+                final int cell = index(x, y);
+                final int start = size;
+                for (final Coordinates c: boardType.adjacencies(d, new Coordinates(x, y)))
+                    all[size++] = index(c.first, c.second);
+                Arrays.sort(all, start, size);
+                offsets[cell + 1] = size;
+            }
+        targets = Arrays.copyOf(all, size);
+    }
+
+    /**
+     * @return the width of the board, i.e. the extent of x
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the board, i.e. the extent of y
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of cells
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the index of the cell
+     */
+    public int index(final int x, final int y) {
+        return x * height + y;
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return the x coordinate of the cell
+     */
+    public int x(final int cell) {
+        return cell / height;
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return the y coordinate of the cell
+     */
+    public int y(final int cell) {
+        return cell % height;
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return the position in the targets of the first neighbour of the cell
+     */
+    public int start(final int cell) {
+        return offsets[cell];
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return the position in the targets after the last neighbour of the cell
+     */
+    public int end(final int cell) {
+        return offsets[cell + 1];
+    }
+
+    /**
+     * @param position a position in the targets, between start(i) and end(i) for some cell i
+     * @return the index of the neighbour at the position
+     */
+    public int target(final int position) {
+        return targets[position];
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return the number of neighbours of the cell
+     */
+    public int degree(final int cell) {
+        return offsets[cell + 1] - offsets[cell];
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return a copy of the indices of the neighbours of the cell, in increasing order
+     */
+    public int[] neighbours(final int cell) {
+        return Arrays.copyOfRange(targets, offsets[cell], offsets[cell + 1]);
+    }
+}
@@ -0,0 +1,306 @@
+// BatchSolver.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.trie.SymbolAlphabet;
+import com.vorpal.toggle.trie.SymbolTrie;
+import com.vorpal.toggle.trie.Trie;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Solves large batches of boards, given by their specifications, on a fixed pool of worker threads.
+ *
+ * The specifications are read lazily from a stream, which may be unbounded, and at most a fixed number of boards are
+ * in flight at once, i.e. read but not yet handed to the consumer. Once that many are in flight, reading waits for
+ * the consumer to catch up, so memory use stays flat however many boards are solved. The results are handed to the
+ * consumer one at a time, either in the order of the stream, or in the order in which they are solved.
+ *
+ * Each worker keeps its own solvers, one per alphabet, and BoardSolver reuses its search state per thread, so solving
+ * a board allocates little beyond the board and its solution.
+ */
+public final class BatchSolver implements AutoCloseable {
+    // The number of batch solvers created, for naming their threads.
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final Trie dictionary;
+    private final int minimumWordLength;
+    private final int maximumInFlight;
+    private final ExecutorService workers;
+
+    // The solvers of each worker, by the alphabet of the dice set.
+    private final ThreadLocal<Map<SymbolAlphabet, BoardSolver>> solvers = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * The solution of a board of a batch.
+     */
+    public static final class Result {
+        private final long index;
+        private final BoardSpec spec;
+        private final BoardSolver.Solution solution;
+
+        private Result(final long index, final BoardSpec spec, final BoardSolver.Solution solution) {
+            this.index = index;
+            this.spec = spec;
+            this.solution = solution;
+        }
+
+        /**
+         * @return the position of the board in the stream of specifications, starting at 0
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        public BoardSpec getSpec() {
+            return spec;
+        }
+
+        public BoardSolver.Solution getSolution() {
+            return solution;
+        }
+    }
+
+    /**
+     * The statistics of a batch.
+     */
+    public static final class Statistics {
+        private final long boards;
+        private final long nanos;
+
+        private Statistics(final long boards, final long nanos) {
+            this.boards = boards;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the number of boards solved
+         */
+        public long getBoards() {
+            return boards;
+        }
+
+        /**
+         * @return the time taken to solve the batch, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the throughput, in boards per second
+         */
+        public double boardsPerSecond() {
+            return nanos == 0 ? 0 : boards * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d boards in %.1f ms (%.1f boards/sec)", boards, nanos / 1e6, boardsPerSecond());
+        }
+    }
+
+    /**
+     * Create a batch solver with a worker per processor, and at most 64 boards in flight per worker.
+     * @param dictionary the dictionary, which must not be modified while the solver is in use
+     * @param minimumWordLength the minimum length of a valid word
+     */
+    public BatchSolver(final Trie dictionary, final int minimumWordLength) {
+        this(dictionary, minimumWordLength, Runtime.getRuntime().availableProcessors(),
+                64 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a batch solver.
+     * @param dictionary the dictionary, which must not be modified while the solver is in use
+     * @param minimumWordLength the minimum length of a valid word
+     * @param threads the number of worker threads
+     * @param maximumInFlight the maximum number of boards read from the stream but not yet handed to the consumer
+     * @throws IllegalArgumentException if threads or maximumInFlight is not positive
+     */
+    public BatchSolver(final Trie dictionary, final int minimumWordLength, final int threads,
+                       final int maximumInFlight) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("there must be at least one worker thread");
+        if (maximumInFlight <= 0)
+            throw new IllegalArgumentException("at least one board must be allowed in flight");
+        this.dictionary = Objects.requireNonNull(dictionary);
+        this.minimumWordLength = minimumWordLength;
+        this.maximumInFlight = maximumInFlight;
+
+        final String name = "batch-solver-" + instances.incrementAndGet() + "-";
+        final AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, name + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Solve a batch of boards. This returns once every board has been solved and handed to the consumer.
+     * The consumer is never called concurrently, but may be called from any of the workers.
+     * @param specs the specifications of the boards, which are read lazily
+     * @param ordered true to hand the results to the consumer in the order of the stream, and false to hand them
+     *                over in the order in which they are solved
+     * @param consumer the consumer of the results
+     * @return the statistics of the batch
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     * @throws RuntimeException if solving a board or the consumer fails, in which case the batch is abandoned
+     */
+    public Statistics solve(final Stream<BoardSpec> specs, final boolean ordered,
+                            final Consumer<? super Result> consumer) throws InterruptedException {
+        Objects.requireNonNull(consumer);
+        final Emitter emitter = new Emitter(ordered, consumer, maximumInFlight);
+        final long start = System.nanoTime();
+
+        long index = 0;
+        final Iterator<BoardSpec> iterator = specs.iterator();
+        while (!emitter.hasFailed() && iterator.hasNext()) {
+            final BoardSpec spec = Objects.requireNonNull(iterator.next());
+            emitter.permits.acquire();
+            final long i = index++;
+            workers.execute(() -> {
+                final BoardSolver.Solution solution;
+                try {
+                    solution = solve(spec);
+                } catch (final RuntimeException | Error e) {
+                    emitter.fail(e);
+                    return;
+                }
+                emitter.emit(new Result(i, spec, solution));
+            });
+        }
+
+        // Wait for the boards in flight.
+        emitter.permits.acquire(maximumInFlight);
+        emitter.permits.release(maximumInFlight);
+        final long nanos = System.nanoTime() - start;
+
+        final Throwable failure = emitter.getFailure();
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw (RuntimeException) failure;
+        return new Statistics(index, nanos);
+    }
+
+    /**
+     * Solve a board on the current worker.
+     * @param spec the specification of the board
+     * @return the solution
+     */
+    private BoardSolver.Solution solve(final BoardSpec spec) {
+        final SymbolAlphabet alphabet = spec.getDiceSet().getAlphabet();
+        final BoardSolver solver = solvers.get().computeIfAbsent(alphabet,
+                a -> new BoardSolver(SymbolTrie.of(dictionary, a), minimumWordLength));
+        return solver.solve(spec.toBoard());
+    }
+
+    /**
+     * Hands the results of a batch to the consumer, and releases the permit of each board once it has been handed
+     * over, or once the batch has failed.
+     */
+    private static final class Emitter {
+        private final boolean ordered;
+        private final Consumer<? super Result> consumer;
+        private final Semaphore permits;
+
+        // If ordered, the results solved ahead of the next to emit. There are at most as many as there are permits.
+        private final Map<Long, Result> pending = new HashMap<>();
+        private long next = 0;
+
+        private volatile Throwable failure;
+
+        Emitter(final boolean ordered, final Consumer<? super Result> consumer, final int maximumInFlight) {
+            this.ordered = ordered;
+            this.consumer = consumer;
+            this.permits = new Semaphore(maximumInFlight);
+        }
+
+        /**
+         * Emit a result, and if ordered, any pending results that follow it.
+         * @param result the result
+         */
+        void emit(final Result result) {
+            synchronized (this) {
+                if (failure == null) {
+                    try {
+                        if (!ordered)
+                            deliver(result);
+                        else {
+                            pending.put(result.index, result);
+                            for (Result r = pending.remove(next); r != null; r = pending.remove(next)) {
+                                ++next;
+                                deliver(r);
+                            }
+                        }
+                    } catch (final RuntimeException | Error e) {
+                        abandon(e);
+                    }
+                    return;
+                }
+            }
+            permits.release();
+        }
+
+        /**
+         * Hand a result to the consumer, and release its permit.
+         * @param result the result
+         */
+        private void deliver(final Result result) {
+            try {
+                consumer.accept(result);
+            } finally {
+                permits.release();
+            }
+        }
+
+        /**
+         * Record the failure of a board.
+         * @param e the failure
+         */
+        synchronized void fail(final Throwable e) {
+            if (failure == null)
+                abandon(e);
+            permits.release();
+        }
+
+        /**
+         * Abandon the batch, releasing the permits of the pending results.
+         * @param e the failure
+         */
+        private void abandon(final Throwable e) {
+            failure = e;
+            permits.release(pending.size());
+            pending.clear();
+        }
+
+        boolean hasFailed() {
+            return failure != null;
+        }
+
+        Throwable getFailure() {
+            return failure;
+        }
+    }
+
+    /**
+     * Stop the workers. This must not be called while a batch is being solved.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
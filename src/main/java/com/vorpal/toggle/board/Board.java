@@ -6,6 +6,7 @@ package com.vorpal.toggle.board;
 
 import com.vorpal.toggle.dice.DiceSet;
 import com.vorpal.toggle.dice.Die;
+import com.vorpal.toggle.trie.SymbolTrie;
 import com.vorpal.toggle.trie.Trie;
 import com.vorpal.utils.BigMath;
 import com.vorpal.utils.Coordinates;
@@ -15,14 +16,21 @@ import java.util.*;
 
 /**
  * A board is a permutation of the dice as well as a side for each die.
+ *
+ * A board is a lightweight value: creating one does no searching, so that boards can be enumerated, ranked, and
+ * displayed cheaply. Its words are found the first time that they are requested, and are then kept. A board created
+ * with a dictionary solves itself against it; otherwise, a BoardSolver can solve it against any dictionary.
  */
 public class Board {
     // The type of the board, which provides information about the adjacencies.
     private final BoardType boardType;
 
-    // The dimension of the board.
+    // The dimensions of the board, i.e. its width and height.
     private final Dimensions boardSize;
 
+    // The adjacencies of the cells of the board, shared by all boards of the same type and size.
+    private final AdjacencyTable adjacencyTable;
+
     // The set of dice being used
     private final DiceSet diceSet;
 
@@ -32,57 +40,128 @@ public class Board {
     private final List<Integer> permutation;
     private final List<Integer> diceSides;
 
-    // The trie that we are using as our dictionary.
+    // The dictionary against which this board solves itself, either as a trie or compiled to the alphabet of the
+    // dice set, or null if it has none.
     private final Trie trie;
-
-    // The word list for this, sorted by length and then alphabetically.
-    private final List<String> words;
+    private final SymbolTrie symbolTrie;
 
     // The minimum length of a valid word.
     private final int minimumWordLength;
 
+    // The words in this board, found when first requested.
+    private volatile BoardSolver.Solution solution;
+
+    // The characters of the face showing in each cell, by index, computed when first requested.
+    private volatile char[][] faces;
+
+    /**
+     * Create a board without a dictionary. Its words can be found with a BoardSolver.
+     * @param boardType the type of the board
+     * @param diceSet the dice set
+     * @param permutation the permutation of the dice
+     * @param diceSides the face showing on each die
+     */
+    public Board(final BoardType boardType,
+                 final DiceSet diceSet,
+                 final List<Integer> permutation,
+                 final List<Integer> diceSides) {
+        this(boardType, diceSet, permutation, diceSides, null, null, 0);
+    }
+
+    /**
+     * Create a board whose words are found in a dictionary.
+     * The trie is compiled to the alphabet of the dice set when the words are first requested, which is done only
+     * once per trie and dice set. Thus, the trie should be immutable: it must not be modified after it has been used
+     * to create a board.
+     * @param boardType the type of the board
+     * @param diceSet the dice set
+     * @param permutation the permutation of the dice
+     * @param diceSides the face showing on each die
+     * @param trie the dictionary
+     * @param minimumWordLength the minimum length of a valid word
+     */
     public Board(final BoardType boardType,
                  final DiceSet diceSet,
                  final List<Integer> permutation,
                  final List<Integer> diceSides,
                  final Trie trie,
                  int minimumWordLength) {
+        this(boardType, diceSet, permutation, diceSides, Objects.requireNonNull(trie), null, minimumWordLength);
+    }
+
+    /**
+     * Create a board whose words are found in a dictionary that has been compiled to the alphabet of the dice set.
+     * The dictionary may itself be restricted, e.g. to the faces showing via SymbolTrie.restrict, so that the work of
+     * restricting it is shared when the same dice are solved as boards of several types.
+     * @param boardType the type of the board
+     * @param diceSet the dice set
+     * @param permutation the permutation of the dice
+     * @param diceSides the face showing on each die
+     * @param trie the dictionary, over the alphabet of the dice set
+     * @param minimumWordLength the minimum length of a valid word
+     * @throws IllegalArgumentException if the alphabet of the trie is not that of the dice set
+     */
+    public Board(final BoardType boardType,
+                 final DiceSet diceSet,
+                 final List<Integer> permutation,
+                 final List<Integer> diceSides,
+                 final SymbolTrie trie,
+                 int minimumWordLength) {
+        this(boardType, diceSet, permutation, diceSides, null, Objects.requireNonNull(trie), minimumWordLength);
+        if (!trie.getAlphabet().equals(diceSet.getAlphabet()))
+            throw new IllegalArgumentException("trie alphabet " + trie.getAlphabet()
+                    + " does not match dice set alphabet " + diceSet.getAlphabet());
+    }
+
+    private Board(final BoardType boardType,
+                  final DiceSet diceSet,
+                  final List<Integer> permutation,
+                  final List<Integer> diceSides,
+                  final Trie trie,
+                  final SymbolTrie symbolTrie,
+                  final int minimumWordLength) {
         this.boardType = Objects.requireNonNull(boardType);
         this.diceSet = Objects.requireNonNull(diceSet);
         this.permutation = Objects.requireNonNull(permutation);
         this.diceSides = Objects.requireNonNull(diceSides);
-        this.boardSize = new Dimensions(diceSet.getSide(), diceSet.getSide());
-        this.trie = Objects.requireNonNull(trie);
+        this.boardSize = new Dimensions(diceSet.getWidth(), diceSet.getHeight());
+        this.adjacencyTable = boardType.adjacencyTable(boardSize);
+        this.trie = trie;
+        this.symbolTrie = symbolTrie;
         this.minimumWordLength = minimumWordLength;
 
         // Check that everything is compatible.
         if (!(permutation.size() == diceSet.getNumberOfDice() && BigMath.isPermutation(permutation)))
             throw new IllegalArgumentException("list is not a permutation");
+        if (diceSides.size() != diceSet.getNumberOfDice())
+            throw new IllegalArgumentException("there must be a side for each die");
         diceSides.forEach(s -> {
             if (s < 0 || s > 5)
                 throw new IllegalArgumentException("illegal die side specified: " + s);
         });
+    }
 
-        // Find the words in this board.
-        final List<String> wordList = new ArrayList<>();
-        // Starting in the upper left corner, iterate over every tile and then perform a backtracking using a stack
-        // to find all the words in the board.
-        for (int x = 0; x < boardSize.first; ++x)
-            for (int y = 0; y < boardSize.second; ++y) {
-                final Stack<Coordinates> stack = new Stack<>();
-                stack.push(new Coordinates(x, y));
-                setupWordListRecursive(stack, getValueAt(x, y), wordList);
-                stack.pop();
-            }
+    /**
+     * Find the words in this board against its dictionary, if this has not already been done.
+     * @return the solution
+     * @throws IllegalStateException if this board was created without a dictionary
+     */
+    private BoardSolver.Solution getSolution() {
+        BoardSolver.Solution s = solution;
+        if (s == null) {
+            if (trie == null && symbolTrie == null)
+                throw new IllegalStateException("board has no dictionary: solve it with a BoardSolver");
+            final SymbolTrie compiled = symbolTrie != null ? symbolTrie : SymbolTrie.of(trie, diceSet.getAlphabet());
+            solution = s = new BoardSolver(compiled, minimumWordLength).solve(this);
+        }
+        return s;
+    }
 
-        // Now sort wordList and store immutably in words.
-        // We sort first based on length, and then alphabetically.
-        wordList.sort((o1, o2) -> {
-            if (o1.length() < o2.length()) return -1;
-            if (o1.length() > o2.length()) return 1;
-            return o1.compareTo(o2);
-        });
-        words = Collections.unmodifiableList(wordList);
+    /**
+     * @return true if this board was created with a dictionary, so that it can find its own words, and false otherwise
+     */
+    public boolean hasDictionary() {
+        return trie != null || symbolTrie != null;
     }
 
     /**
@@ -103,45 +182,187 @@ public class Board {
         return boardSize;
     }
 
+    /**
+     * @return the dice set
+     */
+    public DiceSet getDiceSet() {
+        return diceSet;
+    }
+
+    /**
+     * @return the minimum length of a valid word, if this board was created with a dictionary
+     */
+    public int getMinimumWordLength() {
+        return minimumWordLength;
+    }
+
     /**
      * Return the list of words that exist in this board.
+     * These are found the first time that they are requested.
      * @return the list of valid words
+     * @throws IllegalStateException if this board was created without a dictionary
      */
     public List<String> getValidWords() {
-        return words;
+        return getSolution().getWords();
+    }
+
+    /**
+     * Return the IDs of the words in this board, as assigned by the dictionary. These can be compared cheaply, e.g.
+     * to find the words that one player found and another did not with BitSet.andNot.
+     * @return a copy of the set of IDs, or null if the dictionary does not index its words
+     * @throws IllegalStateException if this board was created without a dictionary
+     * @see Trie#getWordId
+     */
+    public BitSet getWordIds() {
+        return getSolution().getWordIds();
+    }
+
+    /**
+     * @return the number of words in this board
+     * @throws IllegalStateException if this board was created without a dictionary
+     */
+    public int getNumberOfWords() {
+        return getSolution().getNumberOfWords();
+    }
+
+    /**
+     * @return the dictionary used to find the words in this board, to which the word IDs refer, or null if this board
+     *         was created without a dictionary
+     */
+    public Trie getDictionary() {
+        return trie != null ? trie : symbolTrie != null ? symbolTrie.getDictionary() : null;
+    }
+
+    /**
+     * Return the score of the board, i.e. the total of the payloads that the dictionary stores with the words in
+     * this board, such as point values or frequencies. These are read during the search, at the node where each word
+     * is found, so no further lookups are needed. If the dictionary does not store payloads, the score is 0.
+     * @return the score
+     * @throws IllegalStateException if this board was created without a dictionary
+     */
+    public long getScore() {
+        return getSolution().getScore();
+    }
+
+    /**
+     * @return the code in the alphabet of the dice set of the face showing in each cell, by index
+     */
+    int[] getSymbols() {
+        final int[] symbols = new int[diceSet.getNumberOfDice()];
+        for (int cell = 0; cell < symbols.length; ++cell)
+            symbols[cell] = diceSet.getAlphabet().code(getValueAt(cell));
+        return symbols;
+    }
+
+    /**
+     * @return the characters of the face showing in each cell, by index, which must not be modified
+     */
+    char[][] getFaces() {
+        char[][] f = faces;
+        if (f == null) {
+            f = new char[diceSet.getNumberOfDice()][];
+            for (int cell = 0; cell < f.length; ++cell)
+                f[cell] = getValueAt(cell).toCharArray();
+            faces = f;
+        }
+        return f;
+    }
+
+    /**
+     * @param cell the index of a cell
+     * @return the face showing in the cell
+     */
+    private String getValueAt(final int cell) {
+        return diceSet.getDie(permutation.get(cell)).getChar(diceSides.get(cell));
+    }
+
+    /**
+     * Determine if a word can be traced on this board, i.e. spelled by the faces of a sequence of adjacent dice, each
+     * used at most once. Only the board is searched, without solving it, so this is cheap enough to check each word
+     * as it is submitted, even on a board created without a dictionary. A face such as QU must be matched in full.
+     * Whether the word is in a dictionary is not checked.
+     * @param word the word, in either case
+     * @return the positions of the dice spelling the word, in order, if it can be traced, and empty otherwise
+     */
+    public Optional<List<Coordinates>> canSpell(final String word) {
+        Objects.requireNonNull(word);
+        final char[][] faces = getFaces();
+        if (word.isEmpty())
+            return Optional.empty();
+
+        final int[] path = new int[Math.min(word.length(), faces.length)];
+        final long[] visited = new long[(faces.length + 63) >>> 6];
+        for (int cell = 0; cell < faces.length; ++cell) {
+            final int dice = trace(word, faces, cell, 0, visited, path, 0);
+            if (dice > 0) {
+                final List<Coordinates> coordinates = new ArrayList<>(dice);
+                for (int i = 0; i < dice; ++i)
+                    coordinates.add(new Coordinates(adjacencyTable.x(path[i]), adjacencyTable.y(path[i])));
+                return Optional.of(coordinates);
+            }
+        }
+        return Optional.empty();
     }
 
     /**
-     * This backtracking algorithm, given the stack of dice chosen so far and the word represented,
-     * determines what words can be generated from this choice and adds them to this.words.
-     * @param stack the coordinates of the dice chosen so far
-     * @param word the word represented by that choice so far
-     * @param wordList the list into which to collect words
+     * Trace the rest of a word from a cell, backtracking over the adjacency table.
+     * @param word the word
+     * @param faces the face in each cell
+     * @param cell the cell whose face must appear next in the word
+     * @param position the position in the word at which the face must appear
+     * @param visited the cells of the dice used so far, as a bitset, in which the cell is marked while it is used
+     * @param path the cells of the dice used so far, into which the rest are written if the word is traced
+     * @param depth the number of dice used so far
+     * @return the number of dice tracing the whole word if it can be traced, and 0 otherwise
      */
-    private void setupWordListRecursive(final Stack<Coordinates> stack, final String word, final List<String> wordList) {
-        // If we are not a prefix, backtrack.
-        if (!trie.isPrefix(word))
-            return;
+    private int trace(final String word, final char[][] faces, final int cell, final int position,
+                      final long[] visited, final int[] path, final int depth) {
+        final char[] face = faces[cell];
+        if (position + face.length > word.length())
+            return 0;
+        for (int i = 0; i < face.length; ++i)
+            if (Character.toUpperCase(word.charAt(position + i)) != Character.toUpperCase(face[i]))
+                return 0;
 
-        // Determine if word is a word.
-        if (word.length() >= minimumWordLength && trie.isWord(word) && !wordList.contains(word))
-            wordList.add(word);
+        path[depth] = cell;
+        final int next = position + face.length;
+        if (next == word.length())
+            return depth + 1;
+        if (depth + 1 == path.length)
+            return 0;
 
-        // Get all unvisited neighbours of the top coordinate and traverse over them.
-        final Coordinates c = stack.peek();
-        final Set<Coordinates> adjacencies = getAdjacencies(c);
-        adjacencies.removeAll(stack);
+        visited[cell >>> 6] |= 1L << cell;
+        int dice = 0;
+        for (int j = adjacencyTable.start(cell); j < adjacencyTable.end(cell) && dice == 0; ++j) {
+            final int neighbour = adjacencyTable.target(j);
+            if ((visited[neighbour >>> 6] & (1L << neighbour)) == 0)
+                dice = trace(word, faces, neighbour, next, visited, path, depth + 1);
+        }
+        visited[cell >>> 6] &= ~(1L << cell);
+        return dice;
+    }
 
-        for (final Coordinates cNext: adjacencies) {
-            stack.push(cNext);
-            setupWordListRecursive(stack, word + getValueAt(cNext), wordList);
-            stack.pop();
+    /**
+     * Restrict a dictionary to the words that could possibly appear on this board, namely those that use each face at
+     * most as many times as it is showing, and in which each pair of consecutive faces is showing on adjacent dice.
+     * @param trie the dictionary, over the alphabet of the dice set
+     * @return the restricted dictionary
+     */
+    public SymbolTrie restrict(final SymbolTrie trie) {
+        final int[] symbols = getSymbols();
+        final int[] counts = new int[diceSet.getAlphabet().size()];
+        final long[] successors = new long[counts.length];
+        for (int cell = 0; cell < symbols.length; ++cell) {
+            ++counts[symbols[cell]];
+            for (int j = adjacencyTable.start(cell); j < adjacencyTable.end(cell); ++j)
+                successors[symbols[cell]] |= 1L << symbols[adjacencyTable.target(j)];
         }
+        return trie.restrict(counts, successors);
     }
 
     public Die getDieAt(final int x, final int y) {
         checkCoordinates(x, y);
-        final int index = BigMath.pairToIndex(diceSet.getSide(), x, y);
+        final int index = adjacencyTable.index(x, y);
         final Die die = diceSet.getDie(permutation.get(index));
         return die;
     }
@@ -151,8 +372,18 @@ public class Board {
     }
 
     public String getValueAt(final int x, final int y) {
-        final int index = BigMath.pairToIndex(diceSet.getSide(), x, y);
-        return getDieAt(x, y).getChar(diceSides.get(index));
+        final Die die = getDieAt(x, y);
+        return die.getChar(diceSides.get(adjacencyTable.index(x, y)));
+    }
+
+    /**
+     * Get the code of the face showing at a position, in the alphabet of the dice set.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the code of the face
+     */
+    public int getSymbolAt(final int x, final int y) {
+        return diceSet.getAlphabet().code(getValueAt(x, y));
     }
 
     public String getOutOfBoundsValueAt(final int x, final int y) {
@@ -163,25 +394,59 @@ public class Board {
 
     public Set<Coordinates> getAdjacencies(final Coordinates c) {
         checkCoordinates(c);
-        return boardType.adjacencies(boardSize, c);
+        final int cell = adjacencyTable.index(c.first, c.second);
+        final Set<Coordinates> adjacencies = new HashSet<>();
+        for (int j = adjacencyTable.start(cell); j < adjacencyTable.end(cell); ++j) {
+            final int neighbour = adjacencyTable.target(j);
+            adjacencies.add(new Coordinates(adjacencyTable.x(neighbour), adjacencyTable.y(neighbour)));
+        }
+        return adjacencies;
+    }
+
+    /**
+     * Return the adjacencies of all the cells of this board, for lookups that should not allocate.
+     * @return the adjacency table, which is shared by all boards of the same type and size
+     */
+    public AdjacencyTable getAdjacencyTable() {
+        return adjacencyTable;
     }
 
     public List<String> getWords() {
-        return words;
+        return getValidWords();
     }
 
     public Set<Coordinates> getAdjacencies(final int x, final int y) {
         return getAdjacencies(new Coordinates(x, y));
     }
 
+    /**
+     * Boards are equal if they have the same type, dice set, permutation, and faces showing, whatever dictionaries
+     * they were created with.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Board board = (Board) o;
+        return boardType == board.boardType &&
+                Objects.equals(diceSet, board.diceSet) &&
+                Objects.equals(permutation, board.permutation) &&
+                Objects.equals(diceSides, board.diceSides);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(boardType, diceSet, permutation, diceSides);
+    }
+
     private void checkCoordinates(final Coordinates c) {
         checkCoordinates(c.first, c.second);
     }
 
     private void checkCoordinates(final int x, final int y) {
-        if (x < 0 || x >= diceSet.getSide())
+        if (x < 0 || x >= boardSize.first)
             throw new IllegalArgumentException("illegal x coordinate: " + x);
-        if (y < 0 || y >= diceSet.getSide())
+        if (y < 0 || y >= boardSize.second)
             throw new IllegalArgumentException("illegal y coordinate: " + y);
     }
 }
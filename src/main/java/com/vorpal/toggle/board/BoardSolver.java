@@ -0,0 +1,497 @@
+// BoardSolver.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.trie.SymbolTrie;
+import com.vorpal.toggle.trie.Trie;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The search for the words on a board, which allocates nothing per step, so that many boards can be solved without
+ * putting pressure on the garbage collector.
+ *
+ * The board is given as an adjacency table and the symbol showing in each cell. The cells used so far are tracked in
+ * a reusable bitset of one bit per cell, the search makes one transition of a symbol trie per die, and the word is
+ * built in a reusable char buffer, which is only copied into a String when a new word is found and the dictionary does
+ * not index its words. The bitset and buffer are part of a context kept per thread, so a solver can be shared between
+ * threads. A large board can also be solved in parallel, dividing the search between the threads of a ForkJoinPool.
+ *
+ * Boards of any size can be solved, e.g. 32x32: the search backtracks as soon as no word extends the dice chosen, so
+ * it never goes deeper than the longest word in the trie, and the memory it uses beyond the board itself is one bit
+ * per cell, plus a buffer and a stack frame per letter of the longest word.
+ */
+public final class BoardSolver {
+    // The number of tasks per thread into which a parallel search is divided.
+    private static final int TASKS_PER_THREAD = 4;
+
+    /**
+     * The words found on a board, and their score.
+     * If the dictionary indexes its words, they are recorded by ID, and the list of words is only spelled when
+     * requested.
+     */
+    public static final class Solution {
+        private final Trie dictionary;
+        private final BitSet wordIds;
+        private final long score;
+        private volatile List<String> words;
+
+        private Solution(final Trie dictionary, final BitSet wordIds, final Set<String> words, final long score) {
+            this.dictionary = dictionary;
+            this.wordIds = wordIds;
+            this.words = words == null ? null : sortWords(new ArrayList<>(words));
+            this.score = score;
+        }
+
+        /**
+         * Sort a word list and store it immutably.
+         * We sort first based on length, and then alphabetically.
+         * @param wordList the list of words
+         * @return the sorted, unmodifiable list
+         */
+        private static List<String> sortWords(final List<String> wordList) {
+            wordList.sort((o1, o2) -> {
+                if (o1.length() < o2.length()) return -1;
+                if (o1.length() > o2.length()) return 1;
+                return o1.compareTo(o2);
+            });
+            return Collections.unmodifiableList(wordList);
+        }
+
+        /**
+         * @return the words found, sorted by length and then alphabetically, as spelled by the faces
+         */
+        public List<String> getWords() {
+            List<String> list = words;
+            if (list == null) {
+                // Spell the words from their IDs. They are written in uppercase, as on the dice.
+                final List<String> wordList = new ArrayList<>(wordIds.cardinality());
+                for (int id = wordIds.nextSetBit(0); id >= 0; id = wordIds.nextSetBit(id + 1))
+                    wordList.add(dictionary.getWord(id).toUpperCase(Locale.ROOT));
+                words = list = sortWords(wordList);
+            }
+            return list;
+        }
+
+        /**
+         * @return a copy of the IDs of the words found, or null if the dictionary does not index its words
+         */
+        public BitSet getWordIds() {
+            return wordIds == null ? null : (BitSet) wordIds.clone();
+        }
+
+        /**
+         * @return the number of words found
+         */
+        public int getNumberOfWords() {
+            return wordIds != null ? wordIds.cardinality() : words.size();
+        }
+
+        /**
+         * @return the dictionary in which the words were found, to which the word IDs refer
+         */
+        public Trie getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * @return the total of the payloads of the words found
+         */
+        public long getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * The words found by a search, or part of one, and their score.
+     */
+    private static final class Found {
+        // The IDs of the words found, if the dictionary indexes its words, and otherwise, their strings.
+        private final BitSet ids;
+        private final Set<String> words;
+        private long score;
+
+        Found(final boolean indexed) {
+            ids = indexed ? new BitSet() : null;
+            words = indexed ? null : new HashSet<>();
+        }
+    }
+
+    /**
+     * The reusable state of a search.
+     */
+    private static final class Context {
+        private char[] word = new char[64];
+
+        // The cells of the dice chosen so far, as a bitset, which is cleared between searches.
+        private long[] visited = new long[1];
+
+        // The words found by the search under way.
+        private Found found;
+    }
+
+    private static final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+    /**
+     * Get the context of this thread, ready to search a board.
+     * @param cells the number of cells of the board
+     * @param found the words found by the search
+     * @return the context
+     */
+    private static Context context(final int cells, final Found found) {
+        final Context context = contexts.get();
+        final int words = (cells + 63) >>> 6;
+        if (context.visited.length < words)
+            context.visited = new long[words];
+        context.found = found;
+        return context;
+    }
+
+    /**
+     * Release the context of this thread after a search, clearing the cells visited in case the search failed.
+     * @param context the context
+     * @param cells the number of cells of the board
+     */
+    private static void release(final Context context, final int cells) {
+        context.found = null;
+        Arrays.fill(context.visited, 0, (cells + 63) >>> 6, 0L);
+    }
+
+    private final SymbolTrie trie;
+    private final int minimumWordLength;
+
+    /**
+     * Create a solver.
+     * @param trie the dictionary, over the alphabet of the dice: this may be restricted to the board being solved
+     * @param minimumWordLength the minimum length of a valid word, in characters
+     */
+    public BoardSolver(final SymbolTrie trie, final int minimumWordLength) {
+        this.trie = trie;
+        this.minimumWordLength = minimumWordLength;
+    }
+
+    /**
+     * Find the words on a board, searching the dictionary as it is, so that nothing is allocated in proportion to the
+     * dictionary.
+     * @param board the board, which must use the alphabet of the dictionary
+     * @return the solution
+     * @throws IllegalArgumentException if the alphabet of the board is not that of the dictionary
+     */
+    public Solution solve(final Board board) {
+        checkAlphabet(board);
+        return solve(board.getAdjacencyTable(), board.getSymbols(), board.getFaces());
+    }
+
+    /**
+     * Find the words on a board, first restricting the dictionary to the words that could possibly appear on the
+     * board. The restricted dictionary is a small fraction of the whole, and is much cheaper to search, but building it
+     * costs time and memory in proportion to the part of the dictionary that the board's symbols can spell. Thus, this
+     * pays off for a single large or slow search, but not when solving many boards.
+     * @param board the board, which must use the alphabet of the dictionary
+     * @return the solution
+     * @throws IllegalArgumentException if the alphabet of the board is not that of the dictionary
+     * @see Board#restrict
+     */
+    public Solution solveRestricted(final Board board) {
+        checkAlphabet(board);
+        return new BoardSolver(board.restrict(trie), minimumWordLength)
+                .solve(board.getAdjacencyTable(), board.getSymbols(), board.getFaces());
+    }
+
+    /**
+     * Check that a board uses the alphabet of the dictionary.
+     * @param board the board
+     * @throws IllegalArgumentException if the alphabet of the board is not that of the dictionary
+     */
+    private void checkAlphabet(final Board board) {
+        if (!trie.getAlphabet().equals(board.getDiceSet().getAlphabet()))
+            throw new IllegalArgumentException("trie alphabet " + trie.getAlphabet()
+                    + " does not match dice set alphabet " + board.getDiceSet().getAlphabet());
+    }
+
+    /**
+     * Find the words on a board.
+     * @param table the adjacency table of the board
+     * @param symbols the code of the symbol showing in each cell, by index
+     * @param faces the characters of the face showing in each cell, by index
+     * @return the solution
+     * @throws IllegalArgumentException if the sizes of the table, symbols, and faces differ
+     */
+    public Solution solve(final AdjacencyTable table, final int[] symbols, final char[][] faces) {
+        check(table, symbols, faces);
+        final Found found = new Found(trie.hasWordIds());
+        if (trie.getMaximumLength() < 1)
+            return new Solution(trie.getDictionary(), found.ids, found.words, found.score);
+
+        final Context context = context(symbols.length, found);
+        final long[] visited = context.visited;
+        try {
+            for (int cell = 0; cell < symbols.length; ++cell) {
+                final int node = trie.transition(SymbolTrie.ROOT, symbols[cell]);
+                if (node < 0)
+                    continue;
+                final int length = append(context, 0, faces[cell]);
+                visited[cell >>> 6] |= 1L << cell;
+                search(context, table, symbols, faces, visited, cell, node, length);
+                visited[cell >>> 6] &= ~(1L << cell);
+            }
+        } finally {
+            release(context, symbols.length);
+        }
+        return new Solution(trie.getDictionary(), found.ids, found.words, found.score);
+    }
+
+    /**
+     * Find the words on a board in parallel, as for solve, which reduces the latency of solving a single large board.
+     * @param board the board, which must use the alphabet of the dictionary
+     * @param pool the pool on which to search
+     * @return the solution
+     * @throws IllegalArgumentException if the alphabet of the board is not that of the dictionary
+     */
+    public Solution solveParallel(final Board board, final ForkJoinPool pool) {
+        checkAlphabet(board);
+        return solveParallel(board.getAdjacencyTable(), board.getSymbols(), board.getFaces(), pool);
+    }
+
+    /**
+     * Find the words on a board in parallel.
+     * The search is divided by its first two dice, i.e. each part starts in one cell and moves first to one of its
+     * neighbours, and ranges of parts are searched as tasks on the pool, where idle workers steal tasks from busy
+     * ones. Each task collects its words separately, and the tasks' words are merged pairwise as they complete, so
+     * the workers never contend. The solution is the same as that of solve.
+     * @param table the adjacency table of the board
+     * @param symbols the code of the symbol showing in each cell, by index
+     * @param faces the characters of the face showing in each cell, by index
+     * @param pool the pool on which to search
+     * @return the solution
+     * @throws IllegalArgumentException if the sizes of the table, symbols, and faces differ
+     */
+    public Solution solveParallel(final AdjacencyTable table, final int[] symbols, final char[][] faces,
+                                  final ForkJoinPool pool) {
+        check(table, symbols, faces);
+
+        // The parts: firsts[i] is the starting cell of part i, and seconds[i] is the cell to which it moves first,
+        // or -1 for the part that only considers the face of the starting cell as a word.
+        final int[] firsts = new int[table.size() + table.start(table.size())];
+        final int[] seconds = new int[firsts.length];
+        int parts = 0;
+        for (int cell = 0; cell < table.size(); ++cell) {
+            if (trie.transition(SymbolTrie.ROOT, symbols[cell]) < 0)
+                continue;
+            firsts[parts] = cell;
+            seconds[parts++] = -1;
+            for (int j = table.start(cell); j < table.end(cell); ++j) {
+                if (table.target(j) == cell)
+                    continue;
+                firsts[parts] = cell;
+                seconds[parts++] = table.target(j);
+            }
+        }
+
+        // Each task searches its parts into a single set of words, and there are a few tasks per thread, which is
+        // enough for work stealing to balance the load, as the parts vary greatly in size.
+        final int threshold = Math.max(1, parts / (TASKS_PER_THREAD * pool.getParallelism()));
+        final Found found = pool.invoke(new SearchTask(table, symbols, faces, firsts, seconds, 0, parts, threshold));
+        return new Solution(trie.getDictionary(), found.ids, found.words, found.score);
+    }
+
+    /**
+     * Search a range of the parts of a parallel search, by splitting it in half until each task has at most a
+     * threshold number of parts, which it searches sequentially.
+     */
+    private final class SearchTask extends RecursiveTask<Found> {
+        private static final long serialVersionUID = 1L;
+
+        private final AdjacencyTable table;
+        private final int[] symbols;
+        private final char[][] faces;
+        private final int[] firsts;
+        private final int[] seconds;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SearchTask(final AdjacencyTable table, final int[] symbols, final char[][] faces,
+                   final int[] firsts, final int[] seconds, final int from, final int to, final int threshold) {
+            this.table = table;
+            this.symbols = symbols;
+            this.faces = faces;
+            this.firsts = firsts;
+            this.seconds = seconds;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Found compute() {
+            if (to - from <= threshold)
+                return searchParts(table, symbols, faces, firsts, seconds, from, to);
+
+            final int mid = (from + to) >>> 1;
+            final SearchTask first = new SearchTask(table, symbols, faces, firsts, seconds, from, mid, threshold);
+            first.fork();
+            final Found second = new SearchTask(table, symbols, faces, firsts, seconds, mid, to, threshold).compute();
+            return merge(first.join(), second);
+        }
+    }
+
+    /**
+     * Search a range of the parts of a parallel search.
+     * @param table the adjacency table
+     * @param symbols the symbol in each cell
+     * @param faces the face in each cell
+     * @param firsts the starting cell of each part
+     * @param seconds the cell to which each part moves first, or -1 to only consider the face of the starting cell
+     * @param from the first part to search
+     * @param to the part after the last to search
+     * @return the words found
+     */
+    private Found searchParts(final AdjacencyTable table, final int[] symbols, final char[][] faces,
+                              final int[] firsts, final int[] seconds, final int from, final int to) {
+        final Found found = new Found(trie.hasWordIds());
+        final Context context = context(symbols.length, found);
+        final long[] visited = context.visited;
+        try {
+            for (int i = from; i < to; ++i) {
+                final int first = firsts[i];
+                final int second = seconds[i];
+                final int node = trie.transition(SymbolTrie.ROOT, symbols[first]);
+                final int length = append(context, 0, faces[first]);
+                if (second < 0) {
+                    if (length >= minimumWordLength && trie.isWord(node))
+                        record(context, node, length);
+                    continue;
+                }
+                final int next = trie.transition(node, symbols[second]);
+                if (next < 0)
+                    continue;
+                visited[first >>> 6] |= 1L << first;
+                visited[second >>> 6] |= 1L << second;
+                search(context, table, symbols, faces, visited, second, next, append(context, length, faces[second]));
+                visited[first >>> 6] &= ~(1L << first);
+                visited[second >>> 6] &= ~(1L << second);
+            }
+        } finally {
+            release(context, symbols.length);
+        }
+        return found;
+    }
+
+    /**
+     * Merge the words found by two tasks of a parallel search. A word found by both is only scored once, so if the dictionary
+     * stores payloads, the payloads of the words found by both are looked up and deducted.
+     * @param found the words found by one part, into which the other is merged
+     * @param other the words found by the other part
+     * @return the merged words
+     */
+    private Found merge(final Found found, final Found other) {
+        final Trie dictionary = trie.getDictionary();
+        long duplicates = 0;
+        if (found.ids != null) {
+            if (trie.hasPayloads()) {
+                final BitSet both = (BitSet) found.ids.clone();
+                both.and(other.ids);
+                for (int id = both.nextSetBit(0); id >= 0; id = both.nextSetBit(id + 1))
+                    duplicates += dictionary.getPayload(dictionary.getWord(id));
+            }
+            found.ids.or(other.ids);
+        } else
+            for (final String word: other.words)
+                if (!found.words.add(word) && trie.hasPayloads())
+                    duplicates += dictionary.getPayload(word.toLowerCase(Locale.ROOT));
+        found.score += other.score - duplicates;
+        return found;
+    }
+
+    /**
+     * Check that a board can be searched.
+     * @param table the adjacency table
+     * @param symbols the symbol in each cell
+     * @param faces the face in each cell
+     * @throws IllegalArgumentException if the sizes of the table, symbols, and faces differ
+     */
+    private static void check(final AdjacencyTable table, final int[] symbols, final char[][] faces) {
+        if (symbols.length != table.size() || faces.length != table.size())
+            throw new IllegalArgumentException("symbols and faces must have an entry per cell");
+    }
+
+    /**
+     * Extend the word from the dice chosen so far, recording the words found. Each level of the recursion makes a
+     * transition of the trie, so the depth of the recursion is bounded by the length of the longest word.
+     * @param context the context
+     * @param table the adjacency table
+     * @param symbols the symbol in each cell
+     * @param faces the face in each cell
+     * @param visited the cells of the dice chosen so far, as a bitset, which is restored before returning
+     * @param cell the cell of the last die chosen
+     * @param node the node of the symbol trie reached by the dice chosen so far
+     * @param length the length of the word spelled by the dice chosen so far, which is in the context's buffer
+     */
+    private void search(final Context context, final AdjacencyTable table, final int[] symbols, final char[][] faces,
+                        final long[] visited, final int cell, final int node, final int length) {
+        if (length >= minimumWordLength && trie.isWord(node))
+            record(context, node, length);
+
+        // If no word extends this one, backtrack.
+        if (!trie.hasChildren(node))
+            return;
+
+        for (int j = table.start(cell); j < table.end(cell); ++j) {
+            final int neighbour = table.target(j);
+            final int slot = neighbour >>> 6;
+            final long bit = 1L << neighbour;
+            if ((visited[slot] & bit) != 0)
+                continue;
+
+            // Only continue if the word extended by this die is a prefix.
+            final int next = trie.transition(node, symbols[neighbour]);
+            if (next < 0)
+                continue;
+            visited[slot] |= bit;
+            search(context, table, symbols, faces, visited, neighbour, next,
+                    append(context, length, faces[neighbour]));
+            visited[slot] &= ~bit;
+        }
+    }
+
+    /**
+     * Write a face into the word buffer.
+     * @param context the context
+     * @param length the length of the word so far
+     * @param face the face
+     * @return the length of the extended word
+     */
+    private static int append(final Context context, final int length, final char[] face) {
+        if (length + face.length > context.word.length) {
+            final char[] word = new char[2 * (length + face.length)];
+            System.arraycopy(context.word, 0, word, 0, length);
+            context.word = word;
+        }
+        System.arraycopy(face, 0, context.word, length, face.length);
+        return length + face.length;
+    }
+
+    /**
+     * Record a word, scoring it if it has not been found before.
+     * @param context the context
+     * @param node the node of the symbol trie representing the word
+     * @param length the length of the word, which is in the context's buffer
+     */
+    private void record(final Context context, final int node, final int length) {
+        final Found found = context.found;
+        final boolean added;
+        if (found.ids != null) {
+            final int id = trie.wordId(node);
+            added = !found.ids.get(id);
+            found.ids.set(id);
+        } else
+            added = found.words.add(new String(context.word, 0, length));
+        if (added)
+            found.score += trie.payload(node);
+    }
+}
@@ -0,0 +1,106 @@
+// BoardSpec.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.dice.DiceSet;
+import com.vorpal.utils.BigMath;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * The specification of a board by rank: its type, its dice set, the rank of the permutation of the dice, and the rank
+ * of the faces showing, as per BigMath. This is a compact way to describe boards in bulk, e.g. for a BatchSolver,
+ * without creating them until they are needed.
+ */
+public final class BoardSpec {
+    private final BoardType boardType;
+    private final DiceSet diceSet;
+    private final BigInteger permutationRank;
+    private final BigInteger faceRank;
+
+    /**
+     * Specify a board.
+     * @param boardType the type of the board
+     * @param diceSet the dice set
+     * @param permutationRank the rank of the permutation of the dice
+     * @param faceRank the rank of the faces showing
+     * @throws IndexOutOfBoundsException if either rank is out of range for the dice set
+     */
+    public BoardSpec(final BoardType boardType,
+                     final DiceSet diceSet,
+                     final BigInteger permutationRank,
+                     final BigInteger faceRank) {
+        this.boardType = Objects.requireNonNull(boardType);
+        this.diceSet = Objects.requireNonNull(diceSet);
+        this.permutationRank = Objects.requireNonNull(permutationRank);
+        this.faceRank = Objects.requireNonNull(faceRank);
+
+        if (permutationRank.signum() < 0 || permutationRank.compareTo(diceSet.getNumberOfPermutations()) >= 0)
+            throw new IndexOutOfBoundsException("Illegal permutation rank: " + permutationRank);
+        if (faceRank.signum() < 0 || faceRank.compareTo(diceSet.getBoardsPerPermutation()) >= 0)
+            throw new IndexOutOfBoundsException("Illegal face rank: " + faceRank);
+    }
+
+    /**
+     * Specify a board.
+     * @param boardType the type of the board
+     * @param diceSet the dice set
+     * @param permutationRank the rank of the permutation of the dice
+     * @param faceRank the rank of the faces showing
+     * @throws IndexOutOfBoundsException if either rank is out of range for the dice set
+     */
+    public BoardSpec(final BoardType boardType, final DiceSet diceSet, final long permutationRank, final long faceRank) {
+        this(boardType, diceSet, BigInteger.valueOf(permutationRank), BigInteger.valueOf(faceRank));
+    }
+
+    public BoardType getBoardType() {
+        return boardType;
+    }
+
+    public DiceSet getDiceSet() {
+        return diceSet;
+    }
+
+    public BigInteger getPermutationRank() {
+        return permutationRank;
+    }
+
+    public BigInteger getFaceRank() {
+        return faceRank;
+    }
+
+    /**
+     * Create the board, without a dictionary.
+     * @return the board
+     */
+    public Board toBoard() {
+        final int n = diceSet.getNumberOfDice();
+        return new Board(boardType, diceSet,
+                BigMath.unrankPermutationAsList(n, permutationRank),
+                BigMath.unrankDiceFacesAsList(n, faceRank));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final BoardSpec spec = (BoardSpec) o;
+        return boardType == spec.boardType &&
+                Objects.equals(diceSet, spec.diceSet) &&
+                Objects.equals(permutationRank, spec.permutationRank) &&
+                Objects.equals(faceRank, spec.faceRank);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(boardType, diceSet, permutationRank, faceRank);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s,%s,%s)", boardType, diceSet.getName(), permutationRank, faceRank);
+    }
+}
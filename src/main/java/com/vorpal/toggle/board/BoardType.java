@@ -8,8 +8,10 @@ import com.vorpal.utils.Coordinates;
 import com.vorpal.utils.Dimensions;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Defines the characteristics necessary for different types of boards: this consists of the adjacencies
@@ -92,6 +94,12 @@ public enum BoardType {
     private final AxisAlignment xAlign;
     private final AxisAlignment yAlign;
 
+    // The adjacency tables of this type, by board size, computed as they are first needed.
+    private final Map<Dimensions, AdjacencyTable> adjacencyTables = new ConcurrentHashMap<>();
+
+    // The symmetry groups of this type, by board size, computed as they are first needed.
+    private final Map<Dimensions, SymmetryGroup> symmetryGroups = new ConcurrentHashMap<>();
+
     BoardType(final AxisAlignment xAlign, final AxisAlignment yAlign) {
         this.xAlign = xAlign;
         this.yAlign = yAlign;
@@ -105,6 +113,14 @@ public enum BoardType {
         return yAlign;
     }
 
+    /**
+     * Convert a position at most one step outside of a board into the position on the board that it wraps around to.
+     * @param w the width of the board, i.e. the extent of x
+     * @param h the height of the board, i.e. the extent of y
+     * @param newx the x coordinate, from -1 to w
+     * @param newy the y coordinate, from -1 to h
+     * @return the position on the board, or empty if the board does not wrap around to the position
+     */
     public Optional<Coordinates> convert(final int w, final int h, final int newx, final int newy) {
         // We will look at all four cases:
         // 1. x in bounds, y in bounds.
@@ -117,7 +133,7 @@ public enum BoardType {
             return Optional.of(new Coordinates((newx + w) % w, xAlign == AxisAlignment.LINKED ? newy : h - newy - 1));
 
             // 3. x in bounds, y out of bounds.
-        else if ((newx >= 0 && newx < h) && (newy == -1 || newy == h) && yAlign != AxisAlignment.NONE)
+        else if ((newx >= 0 && newx < w) && (newy == -1 || newy == h) && yAlign != AxisAlignment.NONE)
             // Loop y, and flip x if necessary.
             return Optional.of(new Coordinates(yAlign == AxisAlignment.LINKED ? newx : w - newx - 1, (newy + h) % h));
 
@@ -125,8 +141,7 @@ public enum BoardType {
         else if ((newx == -1 || newx == w) && (newy == -1 || newy == h)
                 && xAlign != AxisAlignment.NONE && yAlign != AxisAlignment.NONE) {
             // This is the most complicated case, worked out painfully by hand.
-            // -1 goes to 0
-            // 4 goes to 3
+            // Where an axis is reversed, -1 goes to 0 and w (or h) goes to w - 1 (or h - 1).
             int adjx = yAlign == AxisAlignment.LINKED ?
                     (newx + w) % w :
                     Math.abs(newx) - 1;
@@ -139,9 +154,15 @@ public enum BoardType {
         return Optional.empty();
     }
 
+    /**
+     * Get the adjacencies of a cell.
+     * @param d the dimensions of the board, i.e. its width and height
+     * @param c the coordinates of the cell
+     * @return the cells adjacent to it
+     */
     public Set<Coordinates> adjacencies(final Dimensions d, final Coordinates c) {
-        final int h = d.first;
-        final int w = d.second;
+        final int w = d.first;
+        final int h = d.second;
         final int x = c.first;
         final int y = c.second;
 
@@ -165,6 +186,38 @@ public enum BoardType {
         return nbrs;
     }
 
+    /**
+     * Get the adjacencies of every cell of a board of this type as a table, which is computed once per board size and
+     * shared. Searches should use this rather than adjacencies, which allocates a set for every lookup.
+     * @param d the dimensions of the board
+     * @return the adjacency table
+     */
+    public AdjacencyTable adjacencyTable(final Dimensions d) {
+        return adjacencyTables.computeIfAbsent(d, k -> new AdjacencyTable(this, k));
+    }
+
+    /**
+     * Get the symmetries of a board of this type, i.e. the rearrangements of its cells that preserve adjacency, which
+     * are computed once per board size and shared.
+     * @param d the dimensions of the board
+     * @return the symmetry group
+     */
+    public SymmetryGroup symmetryGroup(final Dimensions d) {
+        return symmetryGroups.computeIfAbsent(d, k -> new SymmetryGroup(this, k));
+    }
+
+    /**
+     * Map a board of this type to the representative of its orbit under the symmetries of the type, so that boards
+     * that are rearrangements of each other by symmetries, and thus have the same words, are identified.
+     * @param d the dimensions of the board
+     * @param values the value in each cell of the board, by index, such as the code of the symbol showing
+     * @return the values in each cell of the representative
+     * @see SymmetryGroup#canonicalize
+     */
+    public int[] canonicalize(final Dimensions d, final int[] values) {
+        return symmetryGroup(d).canonicalize(values);
+    }
+
     public abstract String typeName();
     public abstract String typeDescription();
 }
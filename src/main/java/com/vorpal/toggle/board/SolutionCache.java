@@ -0,0 +1,142 @@
+// SolutionCache.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.trie.SymbolAlphabet;
+import com.vorpal.utils.Dimensions;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the solutions of boards, keyed on their canonical forms, so that a board that is a symmetry of one
+ * already solved, e.g. a translation of it on a torus, is not searched again. As a DiceSet ranks every arrangement of
+ * its dice separately, enumerating boards meets each orbit many times, and all but the first are cache hits.
+ *
+ * Boards are identified by their types, sizes, and the symbols showing in their cells, so boards of different dice
+ * that show the same faces share a solution too. The cache holds the solutions of the boards most recently used, up
+ * to a capacity, and is safe to use from any number of threads. As solving is done outside of the lock, two threads
+ * that miss on the same board at once may both solve it.
+ */
+public final class SolutionCache {
+    /**
+     * The canonical form of a board.
+     */
+    private static final class Key {
+        private final BoardType boardType;
+        private final Dimensions size;
+        private final SymbolAlphabet alphabet;
+        private final int[] symbols;
+        private final int hash;
+
+        Key(final BoardType boardType, final Dimensions size, final SymbolAlphabet alphabet, final int[] symbols) {
+            this.boardType = boardType;
+            this.size = size;
+            this.alphabet = alphabet;
+            this.symbols = symbols;
+            hash = Objects.hash(boardType, size, alphabet, Arrays.hashCode(symbols));
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return boardType == key.boardType &&
+                    Objects.equals(size, key.size) &&
+                    Objects.equals(alphabet, key.alphabet) &&
+                    Arrays.equals(symbols, key.symbols);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final BoardSolver solver;
+    private final Map<Key, BoardSolver.Solution> solutions;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache of the solutions found by a solver.
+     * @param solver the solver, whose dictionary must use the alphabet of the boards to be solved
+     * @param capacity the largest number of solutions to keep
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SolutionCache(final BoardSolver solver, final int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.solver = Objects.requireNonNull(solver);
+        solutions = new LinkedHashMap<Key, BoardSolver.Solution>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, BoardSolver.Solution> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Find the words on a board, from the cache if the board or any of its symmetries has already been solved.
+     * @param board the board, which must use the alphabet of the dictionary
+     * @return the solution
+     * @throws IllegalArgumentException if the alphabet of the board is not that of the dictionary
+     */
+    public BoardSolver.Solution solve(final Board board) {
+        final BoardType boardType = board.getBoardType();
+        final Key key = new Key(boardType, board.getSize(), board.getDiceSet().getAlphabet(),
+                boardType.canonicalize(board.getSize(), board.getSymbols()));
+        BoardSolver.Solution solution;
+        synchronized (solutions) {
+            solution = solutions.get(key);
+        }
+        if (solution != null) {
+            hits.incrementAndGet();
+            return solution;
+        }
+
+        misses.incrementAndGet();
+        solution = solver.solve(board);
+        synchronized (solutions) {
+            solutions.put(key, solution);
+        }
+        return solution;
+    }
+
+    /**
+     * @return the number of solves answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of solves that searched their boards
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of solutions in the cache
+     */
+    public int size() {
+        synchronized (solutions) {
+            return solutions.size();
+        }
+    }
+
+    /**
+     * Discard every solution in the cache.
+     */
+    public void clear() {
+        synchronized (solutions) {
+            solutions.clear();
+        }
+    }
+}
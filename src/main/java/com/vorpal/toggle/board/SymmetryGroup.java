@@ -0,0 +1,254 @@
+// SymmetryGroup.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.utils.Dimensions;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * The symmetries of a board of a given type and size, i.e. the rearrangements of its cells that preserve adjacency.
+ * Rearranging the dice of a board by a symmetry gives a board with exactly the same words, so the boards in the same
+ * orbit can share a single solution, found for a canonical representative of the orbit.
+ *
+ * The symmetries are those of the following forms that are automorphisms of the adjacency table:
+ * 1. Reflections of x and of y, and, on square boards, exchanging x and y.
+ * 2. Translations along each axis that wraps, where crossing a reversed edge reflects the other axis, as for a Mobius
+ *    strip or a Klein bottle.
+ * Each candidate is checked against the adjacency table, so only true symmetries are kept. For a grid, these are the
+ * symmetries of the rectangle or square, and for a torus, they are also every translation. A symmetry is stored as
+ * the handful of parameters of its form, rather than as a permutation of the cells, so large boards with many
+ * symmetries take little memory.
+ *
+ * The symmetries must form a group, i.e. compose to symmetries, for boards in the same orbit to have the same
+ * canonical form. On a board with a wrapped side of 3 or 4 cells, some accidental symmetries, e.g. of a Klein bottle,
+ * compose to rearrangements not of these forms, so for small boards, the group that the symmetries generate is found,
+ * and is stored as permutations of the cells instead. In the extreme, every two cells of a 3x3 Klein bottle are
+ * adjacent, so every rearrangement is a symmetry: where the group is this large, only the identity is used, so that
+ * such boards are their own canonical forms.
+ *
+ * A symmetry group is immutable, and is shared by all boards of the same type and size.
+ * @see BoardType#symmetryGroup
+ */
+public final class SymmetryGroup {
+    // The parameters of a symmetry, in the order in which they are applied.
+    private static final int TRANSPOSE = 0;
+    private static final int FLIP_X = 1;
+    private static final int FLIP_Y = 2;
+    private static final int SHIFT_X = 3;
+    private static final int SHIFT_Y = 4;
+
+    // The largest number of compositions of cells to make in finding the group generated by the symmetries. Every
+    // board with a side of at most 4 is within this, and larger boards have no accidental symmetries.
+    private static final long CLOSURE_LIMIT = 1L << 26;
+
+    // The largest group generated by the symmetries of a small board that is kept.
+    private static final int MAX_CLOSURE = 1 << 13;
+
+    private final AxisAlignment xAlign;
+    private final AxisAlignment yAlign;
+    private final int width;
+    private final int height;
+
+    // The parameters of the symmetries, with the identity first.
+    private final int[][] symmetries;
+
+    // For small boards, the permutations of the cells of the group generated by the symmetries, with the identity
+    // first, and otherwise null.
+    private final int[][] permutations;
+
+    /**
+     * Find the symmetry group for a board type and size.
+     * @param boardType the board type
+     * @param d the dimensions of the board, i.e. its width and height
+     */
+    SymmetryGroup(final BoardType boardType, final Dimensions d) {
+        xAlign = boardType.getXAxisAlignment();
+        yAlign = boardType.getYAxisAlignment();
+        width = d.first;
+        height = d.second;
+
+        final AdjacencyTable table = boardType.adjacencyTable(d);
+        final List<int[]> found = new ArrayList<>();
+
+        // The symmetries found, by the hash of their permutations, to discard those found more than once.
+        final Map<Integer, List<int[]>> hashes = new HashMap<>();
+        final int[] permutation = new int[table.size()];
+        final int transposes = width == height ? 2 : 1;
+        final int xShifts = xAlign == AxisAlignment.NONE ? 1 : width;
+        final int yShifts = yAlign == AxisAlignment.NONE ? 1 : height;
+        for (int transpose = 0; transpose < transposes; ++transpose)
+            for (int flipX = 0; flipX < 2; ++flipX)
+                for (int flipY = 0; flipY < 2; ++flipY)
+                    for (int shiftX = 0; shiftX < xShifts; ++shiftX)
+                        for (int shiftY = 0; shiftY < yShifts; ++shiftY) {
+                            final int[] symmetry = {transpose, flipX, flipY, shiftX, shiftY};
+                            for (int cell = 0; cell < permutation.length; ++cell)
+                                permutation[cell] = image(symmetry, cell);
+                            if (!isAutomorphism(table, permutation))
+                                continue;
+
+                            final List<int[]> same = hashes.computeIfAbsent(Arrays.hashCode(permutation),
+                                    h -> new ArrayList<>());
+                            if (same.stream().noneMatch(s -> isSame(s, permutation))) {
+                                same.add(symmetry);
+                                found.add(symmetry);
+                            }
+                        }
+        symmetries = found.toArray(new int[0][]);
+        final long compositions = (long) found.size() * found.size() * table.size();
+        permutations = compositions <= CLOSURE_LIMIT ? closure(found) : null;
+    }
+
+    /**
+     * Find the closure of the symmetries found under composition, i.e. the group that they generate.
+     * @param found the symmetries found, with the identity first
+     * @return the permutations of the cells of the group, with the identity first, or just the identity if the group
+     *         has more than MAX_CLOSURE elements
+     */
+    private int[][] closure(final List<int[]> found) {
+        final int cells = width * height;
+        final List<int[]> generators = new ArrayList<>();
+        for (final int[] symmetry: found) {
+            final int[] permutation = new int[cells];
+            for (int cell = 0; cell < cells; ++cell)
+                permutation[cell] = image(symmetry, cell);
+            generators.add(permutation);
+        }
+
+        // Compose each element of the group with each generator, until no new elements are found.
+        final List<int[]> group = new ArrayList<>(generators);
+        final Set<IntBuffer> elements = new HashSet<>();
+        generators.forEach(g -> elements.add(IntBuffer.wrap(g)));
+        for (int i = 0; i < group.size(); ++i)
+            for (final int[] generator: generators) {
+                final int[] element = group.get(i);
+                final int[] composition = new int[cells];
+                for (int cell = 0; cell < cells; ++cell)
+                    composition[cell] = generator[element[cell]];
+                if (elements.add(IntBuffer.wrap(composition)))
+                    group.add(composition);
+                if (group.size() > MAX_CLOSURE)
+                    return new int[][] {generators.get(0)};
+            }
+        return group.toArray(new int[0][]);
+    }
+
+    /**
+     * Determine if a permutation of the cells is an automorphism of an adjacency table, i.e. maps every pair of
+     * adjacent cells to a pair of adjacent cells. As a permutation is a bijection, it then preserves non-adjacency too.
+     * @param table the adjacency table
+     * @param permutation the permutation
+     * @return true if the permutation is an automorphism, and false otherwise
+     */
+    private static boolean isAutomorphism(final AdjacencyTable table, final int[] permutation) {
+        for (int cell = 0; cell < table.size(); ++cell) {
+            final int image = permutation[cell];
+            if (table.degree(cell) != table.degree(image))
+                return false;
+            final int[] neighbours = table.neighbours(image);
+            for (int j = table.start(cell); j < table.end(cell); ++j)
+                if (Arrays.binarySearch(neighbours, permutation[table.target(j)]) < 0)
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param symmetry a symmetry
+     * @param permutation a permutation of the cells
+     * @return true if the symmetry is the permutation, and false otherwise
+     */
+    private boolean isSame(final int[] symmetry, final int[] permutation) {
+        for (int cell = 0; cell < permutation.length; ++cell)
+            if (image(symmetry, cell) != permutation[cell])
+                return false;
+        return true;
+    }
+
+    /**
+     * Find the image of a cell under a symmetry.
+     * @param symmetry the parameters of the symmetry
+     * @param cell the index of the cell
+     * @return the index of the image
+     */
+    private int image(final int[] symmetry, final int cell) {
+        int x = cell / height;
+        int y = cell % height;
+        if (symmetry[TRANSPOSE] != 0) {
+            final int t = x;
+            x = y;
+            y = t;
+        }
+        if (symmetry[FLIP_X] != 0)
+            x = width - 1 - x;
+        if (symmetry[FLIP_Y] != 0)
+            y = height - 1 - y;
+
+        // Translate along each axis, reflecting the other when crossing a reversed edge.
+        x += symmetry[SHIFT_X];
+        if (x >= width) {
+            x -= width;
+            if (xAlign == AxisAlignment.REVERSE_LINKED)
+                y = height - 1 - y;
+        }
+        y += symmetry[SHIFT_Y];
+        if (y >= height) {
+            y -= height;
+            if (yAlign == AxisAlignment.REVERSE_LINKED)
+                x = width - 1 - x;
+        }
+        return x * height + y;
+    }
+
+    /**
+     * @return the number of symmetries, including the identity
+     */
+    public int size() {
+        return permutations != null ? permutations.length : symmetries.length;
+    }
+
+    /**
+     * Find the image of a cell under a symmetry.
+     * @param symmetry the index of the symmetry, where 0 is the identity
+     * @param cell the index of the cell
+     * @return the index of the image
+     */
+    public int image(final int symmetry, final int cell) {
+        return permutations != null ? permutations[symmetry][cell] : image(symmetries[symmetry], cell);
+    }
+
+    /**
+     * Find the canonical form of a board, i.e. the representative of its orbit under the symmetries, which is the
+     * least of its rearrangements in lexicographic order. Two boards have the same canonical form exactly when one is
+     * a rearrangement of the other by a symmetry, and thus they have the same words.
+     * @param values the value in each cell of the board, by index, such as the code of the symbol showing
+     * @return the values in each cell of the canonical form
+     * @throws IllegalArgumentException if there is not a value per cell
+     */
+    public int[] canonicalize(final int[] values) {
+        if (values.length != width * height)
+            throw new IllegalArgumentException("there must be a value per cell");
+
+        // Most rearrangements differ from the least found so far within a few cells, so comparing them is cheap.
+        int best = 0;
+        for (int s = 1; s < size(); ++s)
+            for (int cell = 0; cell < values.length; ++cell) {
+                final int value = values[image(s, cell)];
+                final int least = values[image(best, cell)];
+                if (value != least) {
+                    if (value < least)
+                        best = s;
+                    break;
+                }
+            }
+
+        final int[] canonical = new int[values.length];
+        for (int cell = 0; cell < values.length; ++cell)
+            canonical[cell] = values[image(best, cell)];
+        return canonical;
+    }
+}
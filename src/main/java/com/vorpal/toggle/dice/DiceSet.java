@@ -5,9 +5,12 @@
 package com.vorpal.toggle.dice;
 
 import com.vorpal.toggle.board.Board;
+import com.vorpal.toggle.trie.SymbolAlphabet;
 import com.vorpal.utils.BigMath;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents the set of dice making up a Toggle board, but not up to isomorphism as that would be nightmarish to
@@ -15,18 +18,27 @@ import java.math.BigInteger;
  * in some sense, i.e. if a board B can be created by another identical rearrangement of the dice, say B', then
  * both B and B' will have rank numbers despite them being the same in terms of gameplay. They are not the same in
  * terms of actual representations, because the unviewable portion (i.e. the five sides of the dice you cannot see)
- * would differ.
+ * would differ. Where only the words matter, BoardType.canonicalize identifies the boards that are symmetries of each
+ * other, and a SolutionCache solves each of them once.
  */
 public final class DiceSet {
+    // The bounds on the width and height of the board.
+    public static final int MIN_SIDE = 3;
+    public static final int MAX_SIDE = 32;
+
     // Name and description of the dice set.
     final String name;
 
-    // The length and width of the board.
-    private final int side;
+    // The width and height of the board, i.e. the extents of x and y.
+    private final int width;
+    private final int height;
 
     // The dice.
     private final Die[] dice;
 
+    // The alphabet of the faces of the dice, e.g. where QU is a single symbol.
+    private final SymbolAlphabet alphabet;
+
     // The number of dice permutations.
     private final BigInteger dicePermutations;
 
@@ -36,27 +48,98 @@ public final class DiceSet {
     // The number of possible boards.
     private final BigInteger numBoards;
 
+    /**
+     * Create a dice set for a square board.
+     * @param name the name of the dice set
+     * @param side the width and height of the board
+     * @param dice the dice, one per cell
+     */
     public DiceSet(final String name, final int side, final Die[] dice) {
-        if (side < 3 || side > 7)
-            throw new IllegalArgumentException("DiceSet must have side 3 <= s <= 7");
-        if (dice.length != side * side)
-            throw new IllegalArgumentException("DiceSet expected " + side * side + " dice, got " + dice.length);
+        this(name, side, side, dice);
+    }
+
+    /**
+     * Create a dice set for a rectangular board.
+     * @param name the name of the dice set
+     * @param width the width of the board, i.e. the extent of x
+     * @param height the height of the board, i.e. the extent of y
+     * @param dice the dice, one per cell
+     * @throws IllegalArgumentException if the width or height is not between MIN_SIDE and MAX_SIDE, or there is not
+     *                                  one die per cell
+     */
+    public DiceSet(final String name, final int width, final int height, final Die[] dice) {
+        if (width < MIN_SIDE || width > MAX_SIDE || height < MIN_SIDE || height > MAX_SIDE)
+            throw new IllegalArgumentException("DiceSet must have width and height " + MIN_SIDE + " <= s <= "
+                    + MAX_SIDE + ", got " + width + "x" + height);
+        if (dice.length != width * height)
+            throw new IllegalArgumentException("DiceSet expected " + width * height + " dice, got " + dice.length);
 
         this.name = name;
-        this.side = side;
+        this.width = width;
+        this.height = height;
         this.dice = dice;
 
-        dicePermutations = BigMath.factorial(side  * side);
-        boardsPerPermutation = BigMath.exponent(6, side * side);
+        final List<String> faces = new ArrayList<>();
+        for (final Die die: dice)
+            for (int i = 0; i < Die.FACES; ++i)
+                faces.add(die.getChar(i));
+        alphabet = new SymbolAlphabet(faces);
+
+        dicePermutations = BigMath.factorial(dice.length);
+        boardsPerPermutation = BigMath.exponent(Die.FACES, dice.length);
         numBoards = dicePermutations.multiply(boardsPerPermutation);
     }
 
+    /**
+     * Generate a dice set for a board of any size from the dice of another, such as one of the default sets, by
+     * laying its dice out over and over, so that the proportions of the letters are kept.
+     * @param name the name of the dice set
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param base the dice set whose dice are used
+     * @return the dice set
+     * @throws IllegalArgumentException if the width or height is not between MIN_SIDE and MAX_SIDE
+     */
+    public static DiceSet generate(final String name, final int width, final int height, final DiceSet base) {
+        final Die[] dice = new Die[width * height];
+        for (int i = 0; i < dice.length; ++i)
+            dice[i] = base.dice[i % base.dice.length];
+        return new DiceSet(name, width, height, dice);
+    }
+
+    /**
+     * @return the width of the board, i.e. the extent of x
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the board, i.e. the extent of y
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return true if the board is square, and false otherwise
+     */
+    public boolean isSquare() {
+        return width == height;
+    }
+
+    /**
+     * @return the side of the board, which must be square
+     * @throws IllegalStateException if the board is not square
+     */
     public int getSide() {
-        return side;
+        if (width != height)
+            throw new IllegalStateException("dice set " + name + " is " + width + "x" + height + ", not square");
+        return width;
     }
 
     public int getNumberOfDice() {
-        return side * side;
+        return dice.length;
     }
 
     public Die getDie(int index) {
@@ -67,6 +150,28 @@ public final class DiceSet {
         return name;
     }
 
+    /**
+     * Get the alphabet comprising the faces of the dice, which are normalized as per the trie.
+     * @return the alphabet
+     */
+    public SymbolAlphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @return the number of permutations of the dice
+     */
+    public BigInteger getNumberOfPermutations() {
+        return dicePermutations;
+    }
+
+    /**
+     * @return the number of ways of choosing the face showing on each die, for each permutation
+     */
+    public BigInteger getBoardsPerPermutation() {
+        return boardsPerPermutation;
+    }
+
     // Given a board rank, create the board.
     public Board unrankBoard(final BigInteger boardRank) {
         if (boardRank.compareTo(BigInteger.ZERO) < 0 || boardRank.compareTo(numBoards) >= 0)
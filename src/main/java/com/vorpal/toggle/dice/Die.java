@@ -9,6 +9,9 @@ package com.vorpal.toggle.dice;
  * this project. Similarly, Q will represent Qu in all cases, as per the standard in many of these games.
  */
 public class Die {
+    // The number of faces of a die.
+    public static final int FACES = 6;
+
     private final String[] chars;
 
     public Die(String s1, String s2, String s3, String s4, String s5, String s6) {
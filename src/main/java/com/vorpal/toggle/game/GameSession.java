@@ -0,0 +1,244 @@
+// GameSession.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.game;
+
+import com.vorpal.toggle.board.Board;
+import com.vorpal.toggle.trie.Trie;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToIntFunction;
+
+/**
+ * A game played by many players at once on the same board, where each player scores only for the words that no other
+ * player found.
+ *
+ * The board is solved once, when the session is created, and its words are numbered densely in the order of their
+ * IDs in the dictionary, so that all of the state of a session is kept in arrays indexed by word:
+ * 1. Each player has a bitset of the words that they have found, as an AtomicLongArray, which is set by compare and
+ *    swap.
+ * 2. Each word has a count of the players who have found it, in an AtomicIntegerArray. Scoring only needs to know if
+ *    this is 0, 1, or more, so the count saturates at 2: once two players have found a word, further submissions of it
+ *    only read the count, so the counts of common words, which are submitted by nearly everyone, are not contended.
+ *
+ * Thus, submissions take no locks: players are looked up in a ConcurrentHashMap, and everything else is a single
+ * atomic operation on an array. A session is safe to use from any number of threads.
+ */
+public final class GameSession {
+    // The count of finders at which a word is no longer unique, and at which the count saturates.
+    private static final int SHARED = 2;
+
+    /**
+     * The outcome of submitting a word.
+     */
+    public enum Outcome {
+        // The word is on the board, and the player had not already found it.
+        ACCEPTED,
+        // The player had already found the word.
+        ALREADY_FOUND,
+        // The word is not on the board, or is not a word.
+        NOT_ON_BOARD
+    }
+
+    private final Board board;
+    private final Trie dictionary;
+
+    // The IDs in the dictionary of the words on the board, in increasing order, so that the index of a word in the
+    // session is found by binary search, and the points for each word.
+    private final int[] wordIds;
+    private final int[] points;
+
+    // The number of players who have found each word, saturating at SHARED.
+    private final AtomicIntegerArray finders;
+
+    // The words found by each player, by player.
+    private final ConcurrentMap<String, AtomicLongArray> players = new ConcurrentHashMap<>();
+
+    /**
+     * Standard points for a word by length, as in Boggle: 1 point for 3 or 4 letters, 2 for 5, 3 for 6, 5 for 7, and
+     * 11 for 8 or more.
+     * @param word the word
+     * @return the points
+     */
+    public static int standardPoints(final String word) {
+        final int length = word.length();
+        if (length <= 4) return 1;
+        if (length == 5) return 2;
+        if (length == 6) return 3;
+        if (length == 7) return 5;
+        return 11;
+    }
+
+    /**
+     * Create a session on a board, scoring words with the standard points.
+     * @param board the board, created with a dictionary that indexes its words
+     * @throws IllegalArgumentException if the dictionary of the board does not index its words
+     */
+    public GameSession(final Board board) {
+        this(board, GameSession::standardPoints);
+    }
+
+    /**
+     * Create a session on a board. The board is solved, if it has not been already.
+     * @param board the board, created with a dictionary that indexes its words
+     * @param points the points for each word, which is given as on the board, i.e. in uppercase
+     * @throws IllegalArgumentException if the dictionary of the board does not index its words
+     */
+    public GameSession(final Board board, final ToIntFunction<String> points) {
+        this.board = Objects.requireNonNull(board);
+        Objects.requireNonNull(points);
+        final BitSet ids = board.getWordIds();
+        if (ids == null)
+            throw new IllegalArgumentException("the dictionary of the board must index its words");
+        dictionary = board.getDictionary();
+        wordIds = ids.stream().toArray();
+        this.points = new int[wordIds.length];
+        for (int i = 0; i < wordIds.length; ++i)
+            this.points[i] = points.applyAsInt(dictionary.getWord(wordIds[i]).toUpperCase(Locale.ROOT));
+        finders = new AtomicIntegerArray(wordIds.length);
+    }
+
+    /**
+     * @return the board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the number of words on the board
+     */
+    public int getNumberOfWords() {
+        return wordIds.length;
+    }
+
+    /**
+     * Find the index of a word in this session.
+     * @param word the word, in either case
+     * @return the index, or -1 if the word is not on the board
+     */
+    private int indexOf(final String word) {
+        final int id = dictionary.getWordId(word.toLowerCase(Locale.ROOT));
+        if (id < 0)
+            return -1;
+        final int index = Arrays.binarySearch(wordIds, id);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Submit a word for a player, who joins the session if this is their first submission.
+     * @param player the player
+     * @param word the word, in either case
+     * @return the outcome
+     */
+    public Outcome submit(final String player, final String word) {
+        final AtomicLongArray found = players.computeIfAbsent(Objects.requireNonNull(player),
+                p -> new AtomicLongArray((wordIds.length + 63) >>> 6));
+        final int index = indexOf(word);
+        if (index < 0)
+            return Outcome.NOT_ON_BOARD;
+
+        // Mark the word as found by the player.
+        final int slot = index >>> 6;
+        final long bit = 1L << index;
+        while (true) {
+            final long bits = found.get(slot);
+            if ((bits & bit) != 0)
+                return Outcome.ALREADY_FOUND;
+            if (found.compareAndSet(slot, bits, bits | bit))
+                break;
+        }
+
+        // Count the player as a finder of the word, unless it is already shared.
+        while (true) {
+            final int count = finders.get(index);
+            if (count >= SHARED || finders.compareAndSet(index, count, count + 1))
+                return Outcome.ACCEPTED;
+        }
+    }
+
+    /**
+     * @return the players who have joined the session
+     */
+    public Set<String> getPlayers() {
+        return Collections.unmodifiableSet(players.keySet());
+    }
+
+    /**
+     * Get the words that a player has found.
+     * @param player the player
+     * @return the words, in the order of the dictionary, or an empty list if the player has not joined
+     */
+    public List<String> getFoundWords(final String player) {
+        return words(player, false);
+    }
+
+    /**
+     * Get the words that a player has found and no other player has found. While submissions are in progress, this
+     * is a snapshot: a word may stop being unique as other players find it.
+     * @param player the player
+     * @return the words, in the order of the dictionary, or an empty list if the player has not joined
+     */
+    public List<String> getUniqueWords(final String player) {
+        return words(player, true);
+    }
+
+    private List<String> words(final String player, final boolean unique) {
+        final AtomicLongArray found = players.get(player);
+        if (found == null)
+            return Collections.emptyList();
+        final List<String> words = new ArrayList<>();
+        for (int index = 0; index < wordIds.length; ++index)
+            if (isSet(found, index) && (!unique || finders.get(index) < SHARED))
+                words.add(dictionary.getWord(wordIds[index]).toUpperCase(Locale.ROOT));
+        return words;
+    }
+
+    /**
+     * Get the score of a player, i.e. the total points of the words that they have found and no other player has.
+     * @param player the player
+     * @return the score, or 0 if the player has not joined
+     */
+    public long getScore(final String player) {
+        final AtomicLongArray found = players.get(player);
+        if (found == null)
+            return 0;
+        long score = 0;
+        for (int slot = 0; slot < found.length(); ++slot)
+            for (long bits = found.get(slot); bits != 0; bits &= bits - 1) {
+                final int index = (slot << 6) + Long.numberOfTrailingZeros(bits);
+                if (finders.get(index) < SHARED)
+                    score += points[index];
+            }
+        return score;
+    }
+
+    /**
+     * @return the score of every player who has joined
+     */
+    public Map<String, Long> getScores() {
+        final Map<String, Long> scores = new HashMap<>();
+        players.keySet().forEach(p -> scores.put(p, getScore(p)));
+        return scores;
+    }
+
+    /**
+     * @return the number of distinct words that have been found by any player
+     */
+    public int getNumberOfWordsFound() {
+        int count = 0;
+        for (int index = 0; index < wordIds.length; ++index)
+            if (finders.get(index) > 0)
+                ++count;
+        return count;
+    }
+
+    private static boolean isSet(final AtomicLongArray bits, final int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+}
@@ -0,0 +1,162 @@
+// ConcurrentDictionary.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe holder for a dictionary that can be changed while it is in use, e.g. by a long-running game service.
+ *
+ * Readers take a snapshot, which is an immutable trie, with a single volatile read: they never block, and never see
+ * a partially applied update. Updates are copy-on-write: a new trie is compiled with the changes, while readers
+ * continue to use the old one, and is then published atomically. Updates are serialized with respect to each other,
+ * so that none is lost.
+ *
+ * A search should take one snapshot and use it throughout, e.g. when creating a Board: it then has a consistent view
+ * of the dictionary, regardless of any updates published in the meantime. Old snapshots are reclaimed by the garbage
+ * collector once no search is using them.
+ *
+ * Note that each update compiles a new trie, which takes time linear in the size of the dictionary, so changes
+ * should be batched where possible.
+ */
+public final class ConcurrentDictionary {
+    /**
+     * An immutable version of the dictionary.
+     */
+    private static final class Version {
+        private final DoubleArrayTrie trie;
+        private final long number;
+
+        Version(final DoubleArrayTrie trie, final long number) {
+            this.trie = trie;
+            this.number = number;
+        }
+    }
+
+    private final AtomicReference<Version> current;
+
+    // Held while compiling an update, so that concurrent updates do not overwrite each other.
+    private final Object updateLock = new Object();
+
+    /**
+     * Create a dictionary from a stream of words.
+     * Note that diacritics are removed, and strings are converted to lowercase.
+     * @param words the stream of words
+     */
+    public ConcurrentDictionary(final Stream<String> words) {
+        this(new DoubleArrayTrie(words));
+    }
+
+    /**
+     * Create a dictionary whose initial version is the given trie.
+     * @param trie the trie
+     */
+    public ConcurrentDictionary(final DoubleArrayTrie trie) {
+        current = new AtomicReference<>(new Version(Objects.requireNonNull(trie), 0));
+    }
+
+    /**
+     * Get the current version of the dictionary. This never blocks, and the trie returned never changes.
+     * @return the current trie
+     */
+    public Trie snapshot() {
+        return current.get().trie;
+    }
+
+    /**
+     * @return the number of updates that have been published, which identifies the current version
+     */
+    public long getVersion() {
+        return current.get().number;
+    }
+
+    /**
+     * Add words to the dictionary, and publish the result.
+     * If the dictionary stores payloads, the payloads of the new words are 0.
+     * @param words the words to add, which are normalized
+     * @return the new version of the dictionary
+     */
+    public Trie addWords(final Collection<String> words) {
+        return update(current -> {
+            final List<String> all = new ArrayList<>(current.getNumberOfWords() + words.size());
+            current.dump(all::add);
+            return WordLists.sortedWords(Stream.concat(all.stream(), words.stream()));
+        }, null);
+    }
+
+    /**
+     * Add words with payloads to the dictionary, and publish the result. The payloads of the words already in the
+     * dictionary are kept, and words already in the dictionary are given their new payloads.
+     * @param words the words to add, which are normalized
+     * @param payload gives the payload of each new normalized word
+     * @return the new version of the dictionary
+     */
+    public Trie addWords(final Collection<String> words, final ToIntFunction<String> payload) {
+        final Set<String> added = words.stream().map(WordLists::normalize).collect(Collectors.toSet());
+        return update(current -> {
+            final List<String> all = new ArrayList<>(current.getNumberOfWords() + added.size());
+            current.dump(all::add);
+            return WordLists.sortedWords(Stream.concat(all.stream(), added.stream()));
+        }, w -> added.contains(w) ? payload.applyAsInt(w) : null);
+    }
+
+    /**
+     * Remove words from the dictionary, and publish the result. Words that are not in the dictionary are ignored.
+     * @param words the words to remove, which are normalized
+     * @return the new version of the dictionary
+     */
+    public Trie removeWords(final Collection<String> words) {
+        final Set<String> removed = words.stream().map(WordLists::normalize).collect(Collectors.toSet());
+        return update(current -> {
+            final List<String> remaining = new ArrayList<>(current.getNumberOfWords());
+            current.dump(w -> {
+                if (!removed.contains(w))
+                    remaining.add(w);
+            });
+            return remaining;
+        }, null);
+    }
+
+    /**
+     * Replace the contents of the dictionary, e.g. after reloading it from a file, and publish the result.
+     * @param words the stream of words
+     * @return the new version of the dictionary
+     */
+    public Trie replace(final Stream<String> words) {
+        final List<String> sorted = WordLists.sortedWords(words);
+        return update(current -> sorted, null);
+    }
+
+    /**
+     * Compile a new version of the dictionary from the current one, and publish it.
+     * If the current version stores payloads, or new payloads are given, the new version stores payloads, and words
+     * without a new payload keep their current one.
+     * @param change produces the sorted, distinct, normalized words of the new version from the current trie
+     * @param payload gives the new payload of a word, or null if it keeps its current payload; or null entirely
+     * @return the new trie
+     */
+    private Trie update(final Function<DoubleArrayTrie, List<String>> change, final Function<String, Integer> payload) {
+        synchronized (updateLock) {
+            final Version version = current.get();
+            final DoubleArrayTrie old = version.trie;
+            final ToIntFunction<String> payloads;
+            if (payload != null)
+                payloads = w -> {
+                    final Integer p = payload.apply(w);
+                    return p != null ? p : old.getPayload(w);
+                };
+            else
+                payloads = old.hasPayloads() ? old::getPayload : null;
+            final DoubleArrayTrie trie = new DoubleArrayTrie(change.apply(old), payloads);
+            current.set(new Version(trie, version.number + 1));
+            return trie;
+        }
+    }
+}
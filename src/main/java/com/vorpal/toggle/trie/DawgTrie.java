@@ -0,0 +1,415 @@
+// DawgTrie.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A directed acyclic word graph, i.e. the minimal deterministic automaton accepting the words of the dictionary.
+ * Unlike a trie, which can only share common prefixes, a DAWG also merges identical suffix subtrees, so endings like
+ * -ING, -ED and -NESS are stored once rather than once per word.
+ *
+ * The automaton is built incrementally from a sorted list of words using the algorithm of Daciuk, Mihov, Watson and
+ * Watson, and then frozen into flat arrays: the edges of each state are stored contiguously and in alphabetical order.
+ *
+ * As with LinkedTrie, diacritics are removed, and lookups are CASE INSENSITIVE.
+ */
+public final class DawgTrie implements Trie {
+    // The root state.
+    private static final int ROOT = 0;
+
+    // The bit in firstEdge that marks a state as representing a valid word, and the mask to extract the edge index.
+    private static final int TERMINAL = 0x80000000;
+    private static final int INDEX_MASK = 0x7fffffff;
+
+    // For state s, the edges are at indices firstEdge[s] & INDEX_MASK (inclusive) to firstEdge[s+1] & INDEX_MASK
+    // (exclusive) of edgeLabels and edgeTargets.
+    private final int[] firstEdge;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+
+    // The number of words, and the length of the longest word.
+    private final int words;
+    private final int height;
+
+    /**
+     * Create a DAWG from the supplied stream of words.
+     * Note that diacritics are removed, and strings are converted to lowercase.
+     * @param words the stream of words
+     */
+    public DawgTrie(final Stream<String> words) {
+        this(build(WordLists.sortedWords(words)));
+    }
+
+    /**
+     * Create a DAWG from the supplied filename.
+     * @param filename name of the file
+     * @throws java.io.IOException if error occurs when trying to open file
+     */
+    public DawgTrie(final String filename) throws java.io.IOException {
+        this(build(WordLists.sortedWords(Paths.get(filename))));
+    }
+
+    /**
+     * Create a DAWG from the supplied file.
+     * @param file the file
+     * @throws java.io.FileNotFoundException if error occurs when trying to access file
+     */
+    public DawgTrie(final File file) throws java.io.FileNotFoundException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Create a DAWG from the supplied input stream, which should be UTF-8 with one word per line.
+     * @param is the input stream
+     */
+    public DawgTrie(final InputStream is) {
+        this(build(WordLists.sortedWords(is)));
+    }
+
+    /**
+     * Freeze the minimized automaton held by a builder into flat arrays.
+     * States are numbered in depth-first order from the root, so the root is state 0.
+     * @param builder the builder
+     */
+    private DawgTrie(final Builder builder) {
+        final Builder.Node root = builder.finish();
+
+        // Number the states.
+        final Map<Builder.Node, Integer> ids = new IdentityHashMap<>();
+        final List<Builder.Node> order = new ArrayList<>();
+        final Deque<Builder.Node> stack = new ArrayDeque<>();
+        int numEdges = 0;
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final Builder.Node node = stack.pop();
+            if (ids.containsKey(node))
+                continue;
+            ids.put(node, order.size());
+            order.add(node);
+            numEdges += node.size;
+            for (int i = node.size - 1; i >= 0; --i)
+                if (!ids.containsKey(node.targets[i]))
+                    stack.push(node.targets[i]);
+        }
+
+        firstEdge = new int[order.size() + 1];
+        edgeLabels = new char[numEdges];
+        edgeTargets = new int[numEdges];
+        int edge = 0;
+        for (int s = 0; s < order.size(); ++s) {
+            final Builder.Node node = order.get(s);
+            firstEdge[s] = edge | (node.terminal ? TERMINAL : 0);
+            for (int i = 0; i < node.size; ++i) {
+                edgeLabels[edge] = node.labels[i];
+                edgeTargets[edge] = ids.get(node.targets[i]);
+                ++edge;
+            }
+        }
+        firstEdge[order.size()] = edge;
+
+        words = builder.words;
+        height = builder.height;
+    }
+
+    private static Builder build(final List<String> sortedWords) {
+        final Builder builder = new Builder();
+        sortedWords.forEach(builder::add);
+        return builder;
+    }
+
+    /**
+     * Follow the transition from a state on a character.
+     * @param state the state
+     * @param c the character
+     * @return the new state, or -1 if there is no such transition
+     */
+    private int transition(final int state, final char c) {
+        final char lc = Character.toLowerCase(c);
+        final int end = firstEdge[state + 1] & INDEX_MASK;
+        for (int e = firstEdge[state] & INDEX_MASK; e < end; ++e) {
+            if (edgeLabels[e] == lc)
+                return edgeTargets[e];
+            // The edges are sorted, so we can stop early.
+            if (edgeLabels[e] > lc)
+                break;
+        }
+        return -1;
+    }
+
+    /**
+     * Walk the automaton from the root along the specified string.
+     * @param s the string
+     * @return the state reached, or -1 if the walk falls off the automaton
+     */
+    private int walk(final String s) {
+        int state = ROOT;
+        for (int i = 0; i < s.length() && state >= 0; ++i)
+            state = transition(state, s.charAt(i));
+        return state;
+    }
+
+    /**
+     * Determine if, according to this DAWG, the specified string is a prefix.
+     * @param s the string to check
+     * @return true if it is a prefix, and false otherwise
+     */
+    @Override
+    public boolean isPrefix(final String s) {
+        return walk(s) >= 0;
+    }
+
+    /**
+     * Determine if, according to this DAWG, the specified string is a valid word.
+     * @param s the string to check
+     * @return true if it is a valid word, and false otherwise
+     */
+    @Override
+    public boolean isWord(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (firstEdge[state] & TERMINAL) != 0;
+    }
+
+    /**
+     * Create a cursor positioned at the root of the DAWG.
+     * @return the cursor
+     */
+    @Override
+    public TrieCursor cursor() {
+        return new IntStateCursor(ROOT) {
+            @Override
+            int transition(final int state, final char c) {
+                return DawgTrie.this.transition(state, c);
+            }
+
+            @Override
+            boolean isTerminal(final int state) {
+                return (firstEdge[state] & TERMINAL) != 0;
+            }
+
+            @Override
+            boolean hasChildren(final int state) {
+                return (firstEdge[state + 1] & INDEX_MASK) > (firstEdge[state] & INDEX_MASK);
+            }
+
+            @Override
+            char nextChild(final int state, final char after) {
+                final int end = firstEdge[state + 1] & INDEX_MASK;
+                for (int e = firstEdge[state] & INDEX_MASK; e < end; ++e)
+                    if (edgeLabels[e] > after)
+                        return edgeLabels[e];
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Dumps the words in the DAWG in alphabetical order.
+     * @param consumer the consumer that is passed each valid word
+     */
+    @Override
+    public void dump(final Consumer<String> consumer) {
+        dump(ROOT, new StringBuilder(), consumer);
+    }
+
+    private void dump(final int state, final StringBuilder prefix, final Consumer<String> consumer) {
+        if ((firstEdge[state] & TERMINAL) != 0)
+            consumer.accept(prefix.toString());
+
+        final int end = firstEdge[state + 1] & INDEX_MASK;
+        for (int e = firstEdge[state] & INDEX_MASK; e < end; ++e) {
+            prefix.append(edgeLabels[e]);
+            dump(edgeTargets[e], prefix, consumer);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+
+    /**
+     * Estimate the heap used by the DAWG, which is almost entirely the arrays of nodes and edges.
+     * @return the estimated bytes used by each array
+     */
+    @Override
+    public Map<String, Long> estimateHeapUsage() {
+        final Map<String, Long> usage = new LinkedHashMap<>();
+        usage.put("nodes", HeapEstimates.array(Integer.BYTES, firstEdge.length));
+        usage.put("edge labels", HeapEstimates.array(Character.BYTES, edgeLabels.length));
+        usage.put("edge targets", HeapEstimates.array(Integer.BYTES, edgeTargets.length));
+        return usage;
+    }
+
+    /**
+     * Some statistics about the size of the DAWG, for comparison against the statistics of a LinkedTrie.
+     */
+    public class DawgStatistics {
+        public int height = -1;
+        public long nodes =  0;
+        public long edges =  0;
+        public long words =  0;
+
+        // The number of states with each number of incoming edges: in a trie, every node but the root has exactly
+        // one, so this shows how much sharing the minimization achieved.
+        public final Map<Integer, Integer> nodesByInDegree = new TreeMap<>();
+    }
+
+    /**
+     * Calculate statistics based on the DAWG.
+     */
+    public DawgStatistics analyze() {
+        final DawgStatistics stats = new DawgStatistics();
+        stats.height = height;
+        stats.nodes = firstEdge.length - 1;
+        stats.edges = edgeTargets.length;
+        stats.words = words;
+
+        final int[] inDegree = new int[firstEdge.length - 1];
+        for (final int t: edgeTargets)
+            ++inDegree[t];
+        for (final int d: inDegree)
+            stats.nodesByInDegree.put(d, stats.nodesByInDegree.getOrDefault(d, 0) + 1);
+
+        return stats;
+    }
+
+    /**
+     * Builds a minimal automaton incrementally from words supplied in sorted order.
+     * After each word is added, every state not on the path of that word is already minimized and registered, so
+     * the memory used during construction is proportional to the size of the final automaton.
+     */
+    public static final class Builder {
+        /**
+         * A mutable state in the automaton under construction.
+         * Two registered nodes are equivalent if they agree on finality and have the same labelled edges to the
+         * same (already minimized) targets, which is what equals and hashCode check.
+         */
+        private static final class Node {
+            private char[] labels = new char[0];
+            private Node[] targets = new Node[0];
+            private int size = 0;
+            private boolean terminal = false;
+
+            Node lastChild() {
+                return size == 0 ? null : targets[size - 1];
+            }
+
+            void addChild(final char c, final Node child) {
+                if (size == labels.length) {
+                    labels = Arrays.copyOf(labels, Math.max(2, size * 2));
+                    targets = Arrays.copyOf(targets, Math.max(2, size * 2));
+                }
+                labels[size] = c;
+                targets[size] = child;
+                ++size;
+            }
+
+            @Override
+            public boolean equals(final Object o) {
+                if (this == o) return true;
+                if (!(o instanceof Node)) return false;
+                final Node other = (Node) o;
+                if (terminal != other.terminal || size != other.size)
+                    return false;
+                for (int i = 0; i < size; ++i)
+                    if (labels[i] != other.labels[i] || targets[i] != other.targets[i])
+                        return false;
+                return true;
+            }
+
+            @Override
+            public int hashCode() {
+                int h = terminal ? 1 : 0;
+                for (int i = 0; i < size; ++i)
+                    h = 31 * (31 * h + labels[i]) + System.identityHashCode(targets[i]);
+                return h;
+            }
+        }
+
+        private final Node root = new Node();
+        private final Map<Node, Node> register = new HashMap<>();
+        private String previous = "";
+        private boolean finished = false;
+        private int words = 0;
+        private int height = 0;
+
+        /**
+         * Add a normalized word. Words must be added in strictly increasing order.
+         * @param word the word
+         * @throws IllegalArgumentException if the word is out of order
+         * @throws IllegalStateException if the DAWG has already been built
+         */
+        public void add(final String word) {
+            if (finished)
+                throw new IllegalStateException("Cannot add \"" + word + "\": the DAWG has already been built.");
+            if (word.compareTo(previous) <= 0)
+                throw new IllegalArgumentException("Words must be added in sorted order: \"" + word +
+                        "\" follows \"" + previous + "\".");
+
+            // Find the common prefix with the previous word: everything below it is now final, so minimize it.
+            int prefixLength = 0;
+            Node node = root;
+            while (prefixLength < word.length() && prefixLength < previous.length()
+                    && word.charAt(prefixLength) == previous.charAt(prefixLength)) {
+                node = node.lastChild();
+                ++prefixLength;
+            }
+            if (node.size > 0)
+                replaceOrRegister(node);
+
+            // Add the remaining suffix as a new chain of states.
+            for (int i = prefixLength; i < word.length(); ++i) {
+                final Node child = new Node();
+                node.addChild(word.charAt(i), child);
+                node = child;
+            }
+            node.terminal = true;
+
+            previous = word;
+            ++words;
+            height = Math.max(height, word.length());
+        }
+
+        /**
+         * Minimize the most recently added branch below a state, replacing each state by an equivalent registered
+         * state if one exists.
+         * @param node the state
+         */
+        private void replaceOrRegister(final Node node) {
+            final Node child = node.lastChild();
+            if (child.size > 0)
+                replaceOrRegister(child);
+
+            final Node equivalent = register.get(child);
+            if (equivalent != null)
+                node.targets[node.size - 1] = equivalent;
+            else
+                register.put(child, child);
+        }
+
+        /**
+         * Minimize the final branch, after which no more words may be added.
+         * @return the root of the minimized automaton
+         */
+        private Node finish() {
+            if (!finished) {
+                if (root.size > 0)
+                    replaceOrRegister(root);
+                register.clear();
+                finished = true;
+            }
+            return root;
+        }
+
+        /**
+         * Build the DAWG from the words added so far.
+         * @return the DAWG
+         */
+        public DawgTrie build() {
+            return new DawgTrie(this);
+        }
+    }
+}
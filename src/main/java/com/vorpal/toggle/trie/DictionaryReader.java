@@ -0,0 +1,220 @@
+// DictionaryReader.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Reads a UTF-8 word list, one word per line, and feeds each normalized word to a sink as characters.
+ *
+ * This is the fast path for loading dictionaries: rather than decoding lines into Strings and running
+ * Normalizer and a regex over each of them, we decode the bytes ourselves and fold each code point through a
+ * precomputed table into the characters it contributes to the normalized word. The word is assembled in a reusable
+ * buffer, so nothing is allocated per word.
+ *
+ * The result is identical to the normalization performed on Strings, i.e. NFD decomposition, removal of all
+ * non-ASCII characters, and conversion to lowercase. This works code point by code point because NFD only ever
+ * reorders combining marks, which are not ASCII and hence are removed anyway.
+ *
+ * As with BufferedReader.lines, lines may be terminated by \n, \r, or \r\n. Empty words are not passed to the sink.
+ */
+final class DictionaryReader {
+    /**
+     * Receives the words read. The buffer is reused, so it must not be retained.
+     */
+    @FunctionalInterface
+    interface WordSink {
+        void accept(final char[] word, final int length);
+    }
+
+    // The code points covered by the table: these are exactly those encoded in one or two bytes of UTF-8, which
+    // includes the Latin, Greek and Cyrillic alphabets and the combining diacritical marks.
+    private static final int TABLE_SIZE = 0x800;
+
+    // Table entries for code points that fold to nothing, and for those that fold to more than one character.
+    private static final char NOTHING = (char) 0xffff;
+    private static final char SEVERAL = (char) 0xfffe;
+
+    private static final char[] FOLD = new char[TABLE_SIZE];
+    static {
+        for (int cp = 0; cp < TABLE_SIZE; ++cp) {
+            final String folded = foldSlowly(cp);
+            FOLD[cp] = folded.isEmpty() ? NOTHING : folded.length() == 1 ? folded.charAt(0) : SEVERAL;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WordSink sink;
+    private final ByteBuffer bytes;
+    private char[] word = new char[32];
+    private int length = 0;
+
+    // The state of the UTF-8 decoder: the code point being assembled, the number of continuation bytes left, and
+    // the smallest code point that may legally be encoded with the number of bytes in the sequence.
+    private int codePoint = 0;
+    private int pending = 0;
+    private int minimum = 0;
+
+    DictionaryReader(final WordSink sink) {
+        this(sink, BUFFER_SIZE);
+    }
+
+    DictionaryReader(final WordSink sink, final int bufferSize) {
+        this.sink = sink;
+        this.bytes = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Read a word list from a file.
+     * @param path the file
+     * @param sink the sink for the words
+     * @throws IOException if the file cannot be read
+     */
+    static void read(final Path path, final WordSink sink) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            new DictionaryReader(sink).read(channel);
+        }
+    }
+
+    /**
+     * Read a word list from a stream.
+     * @param is the stream
+     * @param sink the sink for the words
+     * @throws IOException if the stream cannot be read
+     */
+    static void read(final InputStream is, final WordSink sink) throws IOException {
+        new DictionaryReader(sink).read(Channels.newChannel(is));
+    }
+
+    /**
+     * Read all of the words from a channel.
+     * @param channel the channel
+     * @throws IOException if the channel cannot be read
+     */
+    void read(final ReadableByteChannel channel) throws IOException {
+        while (channel.read(bytes) >= 0) {
+            bytes.flip();
+            while (bytes.hasRemaining())
+                decode(bytes.get() & 0xff);
+            bytes.clear();
+        }
+
+        // A truncated sequence at the end of the input is malformed, and is dropped.
+        pending = 0;
+        endWord();
+    }
+
+    /**
+     * Process a single byte of UTF-8.
+     * @param b the byte
+     */
+    private void decode(final int b) {
+        if (pending > 0) {
+            if ((b & 0xc0) == 0x80) {
+                codePoint = (codePoint << 6) | (b & 0x3f);
+                // Overlong encodings, surrogates, and code points out of range are malformed, and are dropped.
+                if (--pending == 0 && codePoint >= minimum && codePoint <= Character.MAX_CODE_POINT
+                        && (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE))
+                    fold(codePoint);
+                return;
+            }
+            // The sequence was malformed: drop it, and reprocess this byte.
+            pending = 0;
+        }
+
+        if (b < 0x80) {
+            if (b == '\n' || b == '\r')
+                endWord();
+            else
+                fold(b);
+        } else if ((b & 0xe0) == 0xc0) {
+            codePoint = b & 0x1f;
+            pending = 1;
+            minimum = 0x80;
+        } else if ((b & 0xf0) == 0xe0) {
+            codePoint = b & 0x0f;
+            pending = 2;
+            minimum = 0x800;
+        } else if ((b & 0xf8) == 0xf0) {
+            codePoint = b & 0x07;
+            pending = 3;
+            minimum = 0x10000;
+        }
+        // Anything else is a stray continuation byte or an illegal byte, and is dropped.
+    }
+
+    /**
+     * Append the characters that a code point contributes to the normalized word.
+     * @param cp the code point
+     */
+    private void fold(final int cp) {
+        final char c = cp < TABLE_SIZE ? FOLD[cp] : SEVERAL;
+        if (c == NOTHING)
+            return;
+        if (c != SEVERAL) {
+            append(c);
+            return;
+        }
+
+        // Outside of the table, most code points (e.g. CJK) fold to nothing, so this path is rarely taken for long.
+        final String folded = foldSlowly(cp);
+        for (int i = 0; i < folded.length(); ++i)
+            append(folded.charAt(i));
+    }
+
+    private void append(final char c) {
+        if (length == word.length)
+            word = Arrays.copyOf(word, 2 * length);
+        word[length++] = c;
+    }
+
+    private void endWord() {
+        if (length > 0)
+            sink.accept(word, length);
+        length = 0;
+    }
+
+    /**
+     * Fold a code point by decomposing it, removing non-ASCII characters, and converting it to lowercase.
+     * @param cp the code point
+     * @return the normalized characters
+     */
+    private static String foldSlowly(final int cp) {
+        if (!Character.isValidCodePoint(cp))
+            return "";
+        return Normalizer.normalize(new String(Character.toChars(cp)), Normalizer.Form.NFD)
+                .replaceAll("[^\\p{ASCII}]", "")
+                .toLowerCase();
+    }
+
+    /**
+     * Normalize a String using the table, without the regular expression of the String-based normalization.
+     * @param s the string
+     * @return the normalized string
+     */
+    static String normalize(final String s) {
+        final StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ) {
+            final int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            final char c = cp < TABLE_SIZE ? FOLD[cp] : SEVERAL;
+            if (c == SEVERAL)
+                sb.append(foldSlowly(cp));
+            else if (c != NOTHING)
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,222 @@
+// DictionaryRegistry.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A registry of named dictionaries, or language packs, so that a process can host several languages at once.
+ *
+ * Each pack is loaded lazily, the first time it is requested, and only once: every board and thread using a language
+ * shares the same immutable trie, so that the heap used grows with the number of languages loaded, and not with the
+ * number of games in progress. Packs that are no longer needed can be evicted: an evicted trie is only held weakly,
+ * so it is reclaimed once the last board using it is gone, and if it is requested again before then, it is reused
+ * rather than loaded a second time.
+ *
+ * Packs are either registered explicitly with a loader, or found on the classpath by name: the pack "fr" is loaded
+ * from the snapshot /dictionaries/fr.trie if there is one, and otherwise from the word list /dictionaries/fr.txt.
+ * The default pack is the dictionary at /dictionary.trie or /dictionary.txt.
+ * A registry is thread-safe.
+ */
+public final class DictionaryRegistry {
+    // The name of the default pack.
+    public static final String DEFAULT = "default";
+
+    // The classpath directory searched for packs that have not been registered.
+    private static final String PACKS = "/dictionaries/";
+
+    private static final Logger LOGGER = Logger.getLogger(DictionaryRegistry.class.getName());
+
+    private static final DictionaryRegistry defaultRegistry = new DictionaryRegistry();
+    static {
+        defaultRegistry.register(DEFAULT, () -> fromResource("/dictionary"));
+    }
+
+    /**
+     * A language pack: its loader, and its trie once loaded.
+     */
+    private static final class Pack {
+        private final Supplier<? extends Trie> loader;
+
+        // The trie, while it is resident, and a weak reference to it, which survives eviction.
+        private Trie trie;
+        private WeakReference<Trie> reference = new WeakReference<>(null);
+        private long lastUsed;
+
+        Pack(final Supplier<? extends Trie> loader) {
+            this.loader = loader;
+        }
+
+        synchronized Trie get() {
+            lastUsed = System.nanoTime();
+            if (trie == null) {
+                trie = reference.get();
+                if (trie == null) {
+                    trie = Objects.requireNonNull(loader.get(), "loader returned null");
+                    reference = new WeakReference<>(trie);
+                }
+            }
+            return trie;
+        }
+
+        synchronized boolean isResident() {
+            return trie != null;
+        }
+
+        synchronized boolean evict() {
+            final boolean resident = trie != null;
+            trie = null;
+            return resident;
+        }
+
+        synchronized boolean evictIfUnusedSince(final long time) {
+            return lastUsed - time < 0 && evict();
+        }
+    }
+
+    private final Map<String, Pack> packs = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry shared by the process, in which the default pack is registered
+     */
+    public static DictionaryRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Register a pack, replacing any pack of the same name. The loader is not called until the pack is requested.
+     * Boards already using a replaced pack continue to use its trie.
+     * @param name the name of the pack, e.g. a language code
+     * @param loader builds the trie of the pack, which must be immutable, e.g. a DoubleArrayTrie
+     */
+    public void register(final String name, final Supplier<? extends Trie> loader) {
+        packs.put(Objects.requireNonNull(name), new Pack(Objects.requireNonNull(loader)));
+    }
+
+    /**
+     * Get the trie of a pack, loading it if it is not resident. If the pack has not been registered, it is looked for
+     * on the classpath, and registered if found.
+     * @param name the name of the pack
+     * @return the trie, which is shared
+     * @throws IllegalArgumentException if there is no such pack
+     * @throws UncheckedIOException if the pack cannot be read
+     */
+    public Trie get(final String name) {
+        final Pack pack = packs.computeIfAbsent(name, n -> {
+            if (DictionaryRegistry.class.getResource(PACKS + n + ".trie") == null
+                    && DictionaryRegistry.class.getResource(PACKS + n + ".txt") == null)
+                return null;
+            return new Pack(() -> fromResource(PACKS + n));
+        });
+        if (pack == null)
+            throw new IllegalArgumentException("No such dictionary: " + name);
+        return pack.get();
+    }
+
+    /**
+     * @return the names of the registered packs, including those found on the classpath so far, in order
+     */
+    public SortedSet<String> getNames() {
+        return Collections.unmodifiableSortedSet(new TreeSet<>(packs.keySet()));
+    }
+
+    /**
+     * @param name the name of a pack
+     * @return true if the pack is loaded and held by the registry, and false otherwise
+     */
+    public boolean isResident(final String name) {
+        final Pack pack = packs.get(name);
+        return pack != null && pack.isResident();
+    }
+
+    /**
+     * Evict a pack, so that its trie can be reclaimed once no board is using it.
+     * The pack remains registered, and is loaded again if it is requested after being reclaimed.
+     * @param name the name of the pack
+     * @return true if the pack was resident, and false otherwise
+     */
+    public boolean evict(final String name) {
+        final Pack pack = packs.get(name);
+        return pack != null && pack.evict();
+    }
+
+    /**
+     * Evict the packs that have not been requested for some time.
+     * @param idleNanos the time, in nanoseconds, for which a pack must have gone unrequested to be evicted
+     * @return the names of the evicted packs
+     */
+    public List<String> evictUnused(final long idleNanos) {
+        final long time = System.nanoTime() - idleNanos;
+        final List<String> evicted = new ArrayList<>();
+        packs.forEach((name, pack) -> {
+            if (pack.evictIfUnusedSince(time))
+                evicted.add(name);
+        });
+        Collections.sort(evicted);
+        return evicted;
+    }
+
+    /**
+     * Load a dictionary from the classpath, preferring a snapshot, which is memory-mapped if possible, to a word list.
+     * @param base the path of the dictionary without its extension, e.g. /dictionary
+     * @return the trie
+     * @throws UncheckedIOException if the snapshot is not valid, or there is no usable snapshot and the word list
+     *                              cannot be read
+     */
+    static Trie fromResource(final String base) {
+        return load(base, DictionaryRegistry.class.getResource(base + ".trie"),
+                DictionaryRegistry.class.getResource(base + ".txt"));
+    }
+
+    /**
+     * Load a dictionary, preferring a snapshot to a word list. A snapshot in a different version of the format, e.g.
+     * left over from an older build, is reported and skipped in favour of the word list, but any other problem with a
+     * snapshot is a packaging error, and is thrown rather than paying to compile the word list every time.
+     * @param base the name of the dictionary, for messages
+     * @param snapshot the location of the snapshot, or null if there is none
+     * @param words the location of the word list, or null if there is none
+     * @return the trie
+     * @throws UncheckedIOException if the snapshot is not valid, or there is no usable snapshot and the word list
+     *                              cannot be read
+     */
+    static Trie load(final String base, final URL snapshot, final URL words) {
+        IOException failure = null;
+        if (snapshot != null) {
+            try {
+                return TrieSnapshot.load(snapshot);
+            } catch (final TrieSnapshot.UnsupportedVersionException e) {
+                LOGGER.log(Level.WARNING, "Compiling dictionary " + base + " from its word list, as its snapshot " +
+                        snapshot + " cannot be used.", e);
+                failure = e;
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Invalid snapshot for dictionary " + base + ": " + snapshot, e);
+            }
+        }
+
+        // If the word list cannot be read either, keep why the snapshot was skipped.
+        if (words == null) {
+            final IOException e = new IOException("No such dictionary: " + base);
+            if (failure != null)
+                e.addSuppressed(failure);
+            throw new UncheckedIOException(e);
+        }
+        try (final InputStream is = words.openStream()) {
+            return new DoubleArrayTrie(is);
+        } catch (final IOException e) {
+            if (failure != null)
+                e.addSuppressed(failure);
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+// DoubleArrayTrie.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * An immutable trie stored in two flat int arrays, base and check, as per Aoe's double-array trie.
+ *
+ * Each state of the trie is an index into the arrays. There is a transition from state s on character c to state t
+ * if and only if t = base[s] + c and check[t] == s. Lookups thus cost one array probe per character, with no pointer
+ * chasing, boxing, or allocation. The high bit of base[s] is used to mark that state s represents a valid word.
+ *
+ * Optionally, the trie stores an int payload with each word, e.g. its frequency or point value, in a third array
+ * indexed by state.
+ *
+ * Each word has a dense ID, namely the rank of its state among the terminal states. As check[t] is the parent of
+ * state t, the word with an ID is spelled by selecting its state and following the parents back to the root.
+ *
+ * As with LinkedTrie, diacritics are removed, and lookups are CASE INSENSITIVE.
+ */
+public final class DoubleArrayTrie implements Trie {
+    // The root state.
+    static final int ROOT = 0;
+
+    // The bit in base that marks a state as representing a valid word, and the mask to extract the offset.
+    static final int TERMINAL = 0x80000000;
+    static final int OFFSET_MASK = 0x7fffffff;
+
+    // Marker for unused slots in check.
+    static final int EMPTY = -1;
+
+    // Transitions are on characters, which after normalization are ASCII: this bounds the search over children.
+    static final int ALPHABET_SIZE = 128;
+
+    private final int[] base;
+    private final int[] check;
+
+    // The payload of each state representing a valid word, or null if the trie does not store payloads.
+    private final int[] payloads;
+
+    private final int words;
+
+    // The terminal states, indexed for rank and select, which is built when word IDs are first needed.
+    private volatile RankSelectBitVector terminals;
+
+    /**
+     * Create a trie from the supplied stream of words.
+     * Note that diacritics are removed, and strings are converted to lowercase.
+     * @param words the stream of words
+     */
+    public DoubleArrayTrie(final Stream<String> words) {
+        this(WordLists.sortedWords(words));
+    }
+
+    /**
+     * Create a trie from the supplied stream of words, storing a payload with each word.
+     * Note that diacritics are removed, and strings are converted to lowercase, before the payloads are determined.
+     * @param words the stream of words
+     * @param payload gives the payload of each normalized word
+     */
+    public DoubleArrayTrie(final Stream<String> words, final ToIntFunction<String> payload) {
+        this(WordLists.sortedWords(words), Objects.requireNonNull(payload));
+    }
+
+    /**
+     * Create a trie from the supplied filename.
+     * @param filename name of the file
+     * @throws java.io.IOException if error occurs when trying to open file
+     */
+    public DoubleArrayTrie(final String filename) throws java.io.IOException {
+        this(WordLists.sortedWords(Paths.get(filename)));
+    }
+
+    /**
+     * Create a trie from the supplied file.
+     * @param file the file
+     * @throws java.io.FileNotFoundException if error occurs when trying to access file
+     */
+    public DoubleArrayTrie(final File file) throws java.io.FileNotFoundException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Create a trie from the supplied input stream, which should be UTF-8 with one word per line.
+     * @param is the input stream
+     */
+    public DoubleArrayTrie(final InputStream is) {
+        this(WordLists.sortedWords(is));
+    }
+
+    /**
+     * Create a trie from a sorted list of distinct, normalized words.
+     * @param sortedWords the words
+     */
+    DoubleArrayTrie(final List<String> sortedWords) {
+        this(sortedWords, null);
+    }
+
+    /**
+     * Create a trie from a sorted list of distinct, normalized words, storing a payload with each word.
+     * @param sortedWords the words
+     * @param payload gives the payload of each word, or null if the trie should not store payloads
+     */
+    DoubleArrayTrie(final List<String> sortedWords, final ToIntFunction<String> payload) {
+        final Builder builder = new Builder(sortedWords);
+        base = builder.base;
+        check = builder.check;
+        words = sortedWords.size();
+
+        if (payload == null)
+            payloads = null;
+        else {
+            payloads = new int[base.length];
+            for (final String word: sortedWords)
+                payloads[walk(word)] = payload.applyAsInt(word);
+        }
+    }
+
+    /**
+     * Create a trie directly from its arrays. Used when loading a trie that was previously compiled.
+     * @param base the base array
+     * @param check the check array
+     * @param payloads the payloads array, or null if the trie does not store payloads
+     * @param words the number of words in the trie
+     */
+    DoubleArrayTrie(final int[] base, final int[] check, final int[] payloads, final int words) {
+        if (base.length != check.length || (payloads != null && payloads.length != base.length))
+            throw new IllegalArgumentException("base, check and payloads must have the same length");
+        this.base = base;
+        this.check = check;
+        this.payloads = payloads;
+        this.words = words;
+    }
+
+    /**
+     * Follow the transition from a state on a character.
+     * @param state the state
+     * @param c the character
+     * @return the new state, or -1 if there is no such transition
+     */
+    private int transition(final int state, final char c) {
+        final int t = (base[state] & OFFSET_MASK) + Character.toLowerCase(c);
+        return t < check.length && check[t] == state ? t : -1;
+    }
+
+    /**
+     * Walk the trie from the root along the specified string.
+     * @param s the string
+     * @return the state reached, or -1 if the walk falls off the trie
+     */
+    private int walk(final String s) {
+        int state = ROOT;
+        for (int i = 0; i < s.length() && state >= 0; ++i)
+            state = transition(state, s.charAt(i));
+        return state;
+    }
+
+    /**
+     * Determine if, according to this trie, the specified string is a prefix.
+     * @param s the string to check
+     * @return true if it is a prefix, and false otherwise
+     */
+    @Override
+    public boolean isPrefix(final String s) {
+        return walk(s) >= 0;
+    }
+
+    /**
+     * Determine if, according to this trie, the specified string is a valid word.
+     * @param s the string to check
+     * @return true if it is a valid word, and false otherwise
+     */
+    @Override
+    public boolean isWord(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (base[state] & TERMINAL) != 0;
+    }
+
+    /**
+     * Get the payload stored with a word.
+     * @param s the word
+     * @return the payload, or 0 if s is not a word or the trie does not store payloads
+     */
+    @Override
+    public int getPayload(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (base[state] & TERMINAL) != 0 && payloads != null ? payloads[state] : 0;
+    }
+
+    /**
+     * Get the ID of a word, which is its rank among the terminal states.
+     * @param s the word
+     * @return the ID, with 0 &lt;= ID &lt; getNumberOfWords(), or -1 if s is not a word
+     */
+    @Override
+    public int getWordId(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (base[state] & TERMINAL) != 0 ? (int) terminals().rank1(state) : -1;
+    }
+
+    /**
+     * Get the word with an ID.
+     * @param id the ID
+     * @return the word
+     * @throws IndexOutOfBoundsException if there is no word with the ID
+     */
+    @Override
+    public String getWord(final int id) {
+        if (id < 0 || id >= words)
+            throw new IndexOutOfBoundsException("No word with ID " + id);
+        return spell((int) terminals().select1(id + 1), i -> base[i], i -> check[i]);
+    }
+
+    private RankSelectBitVector terminals() {
+        // The index is immutable, so if two threads race to build it, either result may be used.
+        RankSelectBitVector index = terminals;
+        if (index == null)
+            terminals = index = indexTerminals(i -> base[i], base.length);
+        return index;
+    }
+
+    /**
+     * Index the terminal states of a double-array trie.
+     * @param base the base array
+     * @param length the length of the base array
+     * @return the bit vector marking the terminal states
+     */
+    static RankSelectBitVector indexTerminals(final IntUnaryOperator base, final int length) {
+        final RankSelectBitVector.Builder builder = new RankSelectBitVector.Builder();
+        for (int state = 0; state < length; ++state)
+            builder.append((base.applyAsInt(state) & TERMINAL) != 0);
+        return builder.build();
+    }
+
+    /**
+     * Spell the string leading to a state of a double-array trie, by following the parents back to the root.
+     * @param state the state
+     * @param base the base array
+     * @param check the check array
+     * @return the string
+     */
+    static String spell(final int state, final IntUnaryOperator base, final IntUnaryOperator check) {
+        final StringBuilder sb = new StringBuilder();
+        for (int t = state; t != ROOT; ) {
+            final int parent = check.applyAsInt(t);
+            sb.append((char) (t - (base.applyAsInt(parent) & OFFSET_MASK)));
+            t = parent;
+        }
+        return sb.reverse().toString();
+    }
+
+    /**
+     * Create a cursor positioned at the root of the trie.
+     * @return the cursor
+     */
+    @Override
+    public TrieCursor cursor() {
+        return new IntStateCursor(ROOT) {
+            @Override
+            int transition(final int state, final char c) {
+                return DoubleArrayTrie.this.transition(state, c);
+            }
+
+            @Override
+            boolean isTerminal(final int state) {
+                return (base[state] & TERMINAL) != 0;
+            }
+
+            @Override
+            boolean hasChildren(final int state) {
+                // Only states with children are assigned an offset.
+                return (base[state] & OFFSET_MASK) != 0;
+            }
+
+            @Override
+            int payload(final int state) {
+                return payloads == null ? 0 : payloads[state];
+            }
+
+            @Override
+            int wordId(final int state) {
+                return (int) terminals().rank1(state);
+            }
+        };
+    }
+
+    /**
+     * Dumps the words in the trie in alphabetical order.
+     * @param consumer the consumer that is passed each valid word
+     */
+    @Override
+    public void dump(final Consumer<String> consumer) {
+        dump(ROOT, new StringBuilder(), consumer);
+    }
+
+    private void dump(final int state, final StringBuilder prefix, final Consumer<String> consumer) {
+        if ((base[state] & TERMINAL) != 0)
+            consumer.accept(prefix.toString());
+
+        final int offset = base[state] & OFFSET_MASK;
+        for (int c = 1; c < ALPHABET_SIZE && offset + c < check.length; ++c) {
+            if (check[offset + c] == state) {
+                prefix.append((char) c);
+                dump(offset + c, prefix, consumer);
+                prefix.setLength(prefix.length() - 1);
+            }
+        }
+    }
+
+    /**
+     * Estimate the heap used by the trie, which is almost entirely the base and check arrays.
+     * @return the estimated bytes used by each array
+     */
+    @Override
+    public Map<String, Long> estimateHeapUsage() {
+        final Map<String, Long> usage = new LinkedHashMap<>();
+        usage.put("base", HeapEstimates.array(Integer.BYTES, base.length));
+        usage.put("check", HeapEstimates.array(Integer.BYTES, check.length));
+        if (payloads != null)
+            usage.put("payloads", HeapEstimates.array(Integer.BYTES, payloads.length));
+        if (terminals != null)
+            usage.put("terminals", terminals.estimateHeapBytes());
+        return usage;
+    }
+
+    /**
+     * @return the number of words in the trie
+     */
+    public int getNumberOfWords() {
+        return words;
+    }
+
+    /**
+     * @return the number of slots in the base and check arrays
+     */
+    public int getCapacity() {
+        return base.length;
+    }
+
+    /**
+     * @return true if the trie stores a payload with each word, and false otherwise
+     */
+    public boolean hasPayloads() {
+        return payloads != null;
+    }
+
+    // Raw access to the arrays, for serialization.
+    int[] getBase() {
+        return base;
+    }
+
+    int[] getCheck() {
+        return check;
+    }
+
+    int[] getPayloads() {
+        return payloads;
+    }
+
+    /**
+     * Lays out the trie in the base and check arrays from a sorted list of words.
+     * We build depth first: for each node, the distinct characters at the current depth across its range of words
+     * determine its children, and we look for the first base value at which all of the children fit in free slots.
+     */
+    private static final class Builder {
+        private final List<String> words;
+        private int[] base;
+        private int[] check;
+
+        // The slots that have been claimed, and the first slot that could possibly be free.
+        private final BitSet used = new BitSet();
+        private int nextCheckPos = 1;
+
+        // The fraction of claimed slots passed over in a search above which we stop searching from nextCheckPos.
+        private static final double DENSITY_THRESHOLD = 0.95;
+
+        // The highest slot claimed so far.
+        private int maxUsed = ROOT;
+
+        Builder(final List<String> words) {
+            this.words = words;
+
+            final int initialSize = Math.max(ALPHABET_SIZE * 2, words.size() * 4);
+            base = new int[initialSize];
+            check = new int[initialSize];
+            Arrays.fill(check, EMPTY);
+
+            check[ROOT] = ROOT;
+            used.set(ROOT);
+            build(ROOT, 0, words.size(), 0);
+
+            base = Arrays.copyOf(base, maxUsed + 1);
+            check = Arrays.copyOf(check, maxUsed + 1);
+        }
+
+        /**
+         * Lay out the subtrie rooted at a state.
+         * @param state the state
+         * @param lo the first word (inclusive) in the range with the prefix represented by state
+         * @param hi the last word (exclusive) in the range
+         * @param depth the length of the prefix represented by state
+         */
+        private void build(final int state, int lo, final int hi, final int depth) {
+            // Since the words are sorted and distinct, only the first word in the range can end here.
+            if (lo < hi && words.get(lo).length() == depth) {
+                base[state] |= TERMINAL;
+                ++lo;
+            }
+            if (lo == hi)
+                return;
+
+            // Collect the children and the ranges of words that pass through each of them.
+            final char[] labels = new char[ALPHABET_SIZE];
+            final int[] starts = new int[ALPHABET_SIZE + 1];
+            int numChildren = 0;
+            for (int i = lo; i < hi; ++i) {
+                final char c = words.get(i).charAt(depth);
+                if (c == 0 || c >= ALPHABET_SIZE)
+                    throw new IllegalArgumentException("Unsupported character in word: " + words.get(i));
+                if (numChildren == 0 || labels[numChildren - 1] != c) {
+                    labels[numChildren] = c;
+                    starts[numChildren] = i;
+                    ++numChildren;
+                }
+            }
+            starts[numChildren] = hi;
+
+            final int offset = findOffset(labels, numChildren);
+            base[state] |= offset;
+            for (int i = 0; i < numChildren; ++i) {
+                final int t = offset + labels[i];
+                check[t] = state;
+                used.set(t);
+                maxUsed = Math.max(maxUsed, t);
+            }
+            nextCheckPos = used.nextClearBit(nextCheckPos);
+
+            for (int i = 0; i < numChildren; ++i)
+                build(offset + labels[i], starts[i], starts[i + 1], depth + 1);
+        }
+
+        /**
+         * Find the smallest offset such that all children can be placed in free slots, growing the arrays if needed.
+         * @param labels the characters of the children, in increasing order
+         * @param numChildren the number of children
+         * @return the offset
+         */
+        private int findOffset(final char[] labels, final int numChildren) {
+            final int start = Math.max(nextCheckPos, labels[0] + 1);
+            int pos = used.nextClearBit(start);
+            int misses = 0;
+            while (true) {
+                final int offset = pos - labels[0];
+                boolean fits = true;
+                for (int i = 1; i < numChildren && fits; ++i)
+                    fits = !used.get(offset + labels[i]);
+                if (fits) {
+                    // If almost every slot we passed over was already claimed, the region before pos is nearly
+                    // full, so future searches should not bother scanning it again.
+                    final int span = pos - start + 1;
+                    if (span - misses - 1 >= DENSITY_THRESHOLD * span)
+                        nextCheckPos = pos;
+                    ensureCapacity(offset + labels[numChildren - 1] + 1);
+                    return offset;
+                }
+                ++misses;
+                pos = used.nextClearBit(pos + 1);
+            }
+        }
+
+        private void ensureCapacity(final int size) {
+            if (size <= base.length)
+                return;
+            final int newSize = Math.max(size, base.length + base.length / 2);
+            base = Arrays.copyOf(base, newSize);
+            final int oldSize = check.length;
+            check = Arrays.copyOf(check, newSize);
+            Arrays.fill(check, oldSize, newSize, EMPTY);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// HeapEstimates.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+/**
+ * Helpers for estimating the heap used by the tries, assuming a 64-bit JVM with compressed references and compact
+ * strings, where objects have a 12 byte header, arrays have a 16 byte header, and everything is aligned to 8 bytes.
+ */
+final class HeapEstimates {
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+    static final int STRING = 24;
+    static final int ALIGNMENT = 8;
+
+    private HeapEstimates() {}
+
+    /**
+     * @param bytes a number of bytes
+     * @return the number of bytes rounded up to the alignment
+     */
+    static long align(final long bytes) {
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * @param fieldBytes the total size of the fields of an object
+     * @return the size of the object
+     */
+    static long object(final long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * @param elementBytes the size of an element
+     * @param length the length of the array
+     * @return the size of the array
+     */
+    static long array(final int elementBytes, final int length) {
+        return align(ARRAY_HEADER + (long) elementBytes * length);
+    }
+
+    /**
+     * @param length the length of a Latin-1 string
+     * @return the size of the string, including its array
+     */
+    static long string(final int length) {
+        return STRING + array(Byte.BYTES, length);
+    }
+}
@@ -0,0 +1,136 @@
+// IntStateCursor.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.util.Arrays;
+
+/**
+ * A cursor for the tries whose states are ints, i.e. the array-based tries. The path taken is kept as a stack of
+ * states, so stepping and backing up never allocate (unless the path outgrows the stack, which happens at most
+ * a handful of times).
+ */
+abstract class IntStateCursor implements TrieCursor {
+    private int[] states = new int[16];
+    private int depth = 0;
+
+    /**
+     * @param root the root state of the trie
+     */
+    IntStateCursor(final int root) {
+        states[0] = root;
+    }
+
+    /**
+     * Follow the transition from a state on a character.
+     * @param state the state
+     * @param c the character
+     * @return the new state, or -1 if there is no such transition
+     */
+    abstract int transition(final int state, final char c);
+
+    /**
+     * @param state the state
+     * @return true if the state represents a valid word
+     */
+    abstract boolean isTerminal(final int state);
+
+    /**
+     * @param state the state
+     * @return true if the state has outgoing transitions
+     */
+    abstract boolean hasChildren(final int state);
+
+    /**
+     * @param state a state representing a valid word
+     * @return the payload stored with the word, which is 0 unless overridden by a trie storing payloads
+     */
+    int payload(final int state) {
+        return 0;
+    }
+
+    /**
+     * @param state a state representing a valid word
+     * @return the ID of the word, which is -1 unless overridden by a trie indexing its words
+     */
+    int wordId(final int state) {
+        return -1;
+    }
+
+    /**
+     * Find the next child of a state in alphabetical order. By default, this tries each character in turn, which is
+     * cheap for the double-array tries, where a transition is two array accesses; others override it.
+     * @param state the state
+     * @param after the character after which to search, or 0 to find the first child
+     * @return the least character greater than after on which the state has a transition, or 0 if there is none
+     */
+    char nextChild(final int state, final char after) {
+        for (char c = (char) (after + 1); c < DoubleArrayTrie.ALPHABET_SIZE; ++c)
+            if (Character.toLowerCase(c) == c && transition(state, c) >= 0)
+                return c;
+        return 0;
+    }
+
+    /**
+     * @return the state at which the cursor is positioned
+     */
+    final int state() {
+        return states[depth];
+    }
+
+    @Override
+    public final boolean step(final char c) {
+        final int next = transition(states[depth], c);
+        if (next < 0)
+            return false;
+        if (depth + 1 == states.length)
+            states = Arrays.copyOf(states, 2 * states.length);
+        states[++depth] = next;
+        return true;
+    }
+
+    @Override
+    public final void back() {
+        if (depth == 0)
+            throw new IllegalStateException("Cursor is at the root.");
+        --depth;
+    }
+
+    @Override
+    public final void rewind(final int depth) {
+        if (depth < 0 || depth > this.depth)
+            throw new IllegalArgumentException("Cannot rewind to depth " + depth + " from depth " + this.depth);
+        this.depth = depth;
+    }
+
+    @Override
+    public final int depth() {
+        return depth;
+    }
+
+    @Override
+    public final boolean isWord() {
+        return isTerminal(states[depth]);
+    }
+
+    @Override
+    public final boolean hasChildren() {
+        return hasChildren(states[depth]);
+    }
+
+    @Override
+    public final char nextChild(final char after) {
+        return nextChild(states[depth], after);
+    }
+
+    @Override
+    public final int payload() {
+        return isWord() ? payload(states[depth]) : 0;
+    }
+
+    @Override
+    public final int wordId() {
+        return isWord() ? wordId(states[depth]) : -1;
+    }
+}
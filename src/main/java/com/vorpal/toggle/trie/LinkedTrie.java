@@ -7,9 +7,7 @@ package com.vorpal.toggle.trie;
 import com.vorpal.utils.Pair;
 
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.text.Normalizer;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -17,78 +15,116 @@ import java.util.stream.Stream;
 /**
  * A trie implementation, i.e. a collection of linked nodes, each representing a single letter or a sequence of letters.
  * Note that lookups are CASE INSENSITIVE.
+ *
+ * A linked trie is not thread-safe: it must not be modified while it is being read. For a dictionary that is updated
+ * while in use, see ConcurrentDictionary.
  */
 public final class LinkedTrie implements Trie {
+    // Unpacked nodes each represent a single character, so they share their contents instead of each having a String.
+    private static final String[] CHARACTERS = new String[128];
+    static {
+        for (char c = 0; c < CHARACTERS.length; ++c)
+            CHARACTERS[c] = String.valueOf(c);
+    }
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final LinkedTrieNode[] NO_CHILDREN = new LinkedTrieNode[0];
+
+    /**
+     * Get the contents for a node representing a single character.
+     * @param c the character
+     * @return a string comprising the character, which is shared if possible
+     */
+    private static String contentsOf(final char c) {
+        return c < CHARACTERS.length ? CHARACTERS[c] : String.valueOf(c);
+    }
+
     /**
      * A node in the linked trie.
-     * I'm aware of the "misuse" of Optional here, but we're not making this serializable, and it's only meant to be
-     * used internally: otherwise, we would have to implement our own Optional.
+     * To keep the nodes small, the children are not kept in a map: instead, we store the first character of the
+     * contents of each child in a sorted array, which we binary search, and the children in a parallel array. Both are
+     * sized exactly. Nodes do not link to their parents, and packing rewrites nodes in place.
      */
-    private final class LinkedTrieNode {
+    private static final class LinkedTrieNode {
         // The characters represented by this node.
         // For example, if this node has "t", the parent has "i", and the grandparent is the root, then this node
         // represents the word "it".
-        private final String contents;
+        private String contents;
 
         // Boolean flag to represent if the string represented by this node comprises a valid word.
-        private final boolean isValidWord;
+        private boolean isValidWord;
 
-        // The children of this node.
-        private final Map<Character, LinkedTrieNode> children;
+        // The first characters of the contents of the children of this node, in increasing order.
+        private char[] labels = NO_LABELS;
 
-        // The parent of this node in the trie: the root has an empty value.
-        @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-        private final Optional<LinkedTrieNode> parent;
+        // The children of this node, where children[i] has contents beginning with labels[i].
+        private LinkedTrieNode[] children = NO_CHILDREN;
 
         /**
          * Creates an empty root node.
          */
         LinkedTrieNode() {
-            this(Optional.empty(), "", false);
+            this("", false);
         }
 
         /**
-         * Create a node linked (optionally) to a parent node, with contents, and whether the node is marked as
-         * comprising a valid word.
-         * @param parent optional parent node
+         * Create a node with contents, and whether the node is marked as comprising a valid word.
          * @param contents word fragment represented by this node
          * @param isValidWord true if this node represents a valid word, and false otherwise
          */
-        @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-        LinkedTrieNode(final Optional<LinkedTrieNode> parent, final String contents, final boolean isValidWord) {
-            this.parent = parent;
-            this.contents = contents.toLowerCase();
+        LinkedTrieNode(final String contents, final boolean isValidWord) {
+            this.contents = contents;
             this.isValidWord = isValidWord;
-            children = new HashMap<>();
         }
 
         /**
-         * Create a node linked to a parent node, with contents, and whether the node is marked as comprising
-         * a valid word.
-         * @param parent parent node
-         * @param contents word fragment represented by this node
-         * @param isValidWord true if this node represents a valid word, and false otherwise
+         * Find the child whose contents begin with a given character.
+         * @param c the character
+         * @return the child, or null if there is none
          */
-        LinkedTrieNode(final LinkedTrieNode parent, final String contents, final boolean isValidWord) {
-            this(Optional.ofNullable(parent), contents, isValidWord);
+        LinkedTrieNode child(final char c) {
+            final int idx = Arrays.binarySearch(labels, c);
+            return idx >= 0 ? children[idx] : null;
         }
 
-        // Used for packing only.
+        /**
+         * Add a child, replacing any child whose contents begin with the same character.
+         * @param c the first character of the contents of the child
+         * @param child the child
+         */
+        void put(final char c, final LinkedTrieNode child) {
+            final int idx = Arrays.binarySearch(labels, c);
+            if (idx >= 0) {
+                children[idx] = child;
+                return;
+            }
+
+            final int pos = -idx - 1;
+            final int size = labels.length;
+            final char[] newLabels = new char[size + 1];
+            final LinkedTrieNode[] newChildren = new LinkedTrieNode[size + 1];
+            System.arraycopy(labels, 0, newLabels, 0, pos);
+            System.arraycopy(children, 0, newChildren, 0, pos);
+            newLabels[pos] = c;
+            newChildren[pos] = child;
+            System.arraycopy(labels, pos, newLabels, pos + 1, size - pos);
+            System.arraycopy(children, pos, newChildren, pos + 1, size - pos);
+            labels = newLabels;
+            children = newChildren;
+        }
 
         /**
-         * A constructor used only when packing the tree.
-         * @param parent optional parent node
-         * @param contents word fragment represented by this node
-         * @param isValidWord true is this node represents a valid word, and false otherwise
-         * @param children children of the current node
+         * Find the child whose contents begin with a given character, creating it if it does not exist.
+         * @param c the character
+         * @return the child
          */
-        @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-        private LinkedTrieNode(final Optional<LinkedTrieNode> parent, final String contents,
-                               final boolean isValidWord, final Map<Character, LinkedTrieNode> children) {
-            this.parent = parent;
-            this.contents = contents.toLowerCase();
-            this.isValidWord = isValidWord;
-            this.children = children;
+        LinkedTrieNode childOrNew(final char c) {
+            LinkedTrieNode node = child(c);
+            if (node == null) {
+                node = new LinkedTrieNode(contentsOf(c), false);
+                put(c, node);
+            }
+            return node;
         }
 
         /**
@@ -98,62 +134,45 @@ public final class LinkedTrie implements Trie {
          * 1. This node is not a valid word.
          * 2. This node only has one child.
          *
-         * Then we "pull" the child data up into this node.
+         * Then we "pull" the child data up into this node, which takes the place of the child.
          *
          * NOTE: pack should never be invoked until all words have been added; otherwise, essential intermediate
          * nodes may not exist during an addWord operation.
          */
         void pack() {
             // Pack the children.
-            children.values().forEach(LinkedTrieNode::pack);
+            for (final LinkedTrieNode child: children)
+                child.pack();
 
             // If this is a valid word, we can't pack, because we would lose that information.
-            if (!isValidWord && children.size() == 1) {
-                children.forEach(($, childValue) -> {
-                    final LinkedTrieNode packed = new LinkedTrieNode(parent, contents + childValue.contents,
-                            childValue.isValidWord, childValue.children);
-
-                    // If this node has a parent, set it to be equal to the new node.
-                    parent.ifPresent(p -> p.children.put(contents.charAt(0), packed));
-                });
-
-                // Clear out the children here to eliminate all in pointers to this node, since we want it to be
-                // garbage collected along with its children.
-                children.clear();
+            // As the child has already been packed, one step suffices.
+            if (!isValidWord && children.length == 1) {
+                final LinkedTrieNode child = children[0];
+                contents = contents + child.contents;
+                isValidWord = child.isValidWord;
+                labels = child.labels;
+                children = child.children;
             }
         }
 
         /**
-         * Add a word fragment from this node to the trie.
-         * Note that if the trie has been packed, this can throw an IllegalStateException if it no longer can be
-         * made to fit without splitting up packed nodes.
-         * @param sm the word fragment
+         * Add a word fragment from this node to the trie, walking down one character per node.
+         * Note that if the trie has been packed, this throws an IllegalStateException on reaching a packed node, as
+         * the fragment can no longer be made to fit without splitting it up.
+         * @param word the buffer holding the normalized word
+         * @param from the index of the first character of the fragment, i.e. the first character below this node
+         * @param length the length of the word
          */
-        void add(final String sm) {
-            final String s = sm.toLowerCase();
-            if (!s.startsWith(contents))
-                // Something has gone wrong. This call means that the trie is invalid.
-                // This could have resulted in packing before adding all words.
-                throw new IllegalStateException("Cannot add \"" + contents + "\" to the trie. " +
-                        "Did you pack before adding?");
-
-            // Remaining characters in the word.
-            final String s2 = s.substring(contents.length());
-
-            // If s2 is empty, that means that we have reached a node that is a valid word.
-            // If it is not currently a valid word, we must switch it to be one and change the parent to point
-            // to this one instead. If words are being added in alphabetical order, this should never happen.
-            if (s2.isEmpty() && !isValidWord) {
-                final LinkedTrieNode node = new LinkedTrieNode(parent, contents, true, children);
-                parent.ifPresent(p -> p.children.put(contents.charAt(0), node));
-            } else if (!s2.isEmpty()) {
-                final char first = s2.charAt(0);
-                final LinkedTrieNode node = children.computeIfAbsent(first,
-                        ($) -> new LinkedTrieNode(this, String.valueOf(first), s2.length() == 1));
-
-                // Now invoke with the rest of s2 on the child node.
-                node.add(s2);
+        void add(final char[] word, final int from, final int length) {
+            LinkedTrieNode node = this;
+            for (int i = from; i < length; ++i) {
+                node = node.childOrNew(word[i]);
+                if (node.contents.length() != 1)
+                    // Something has gone wrong. This could have resulted in packing before adding all words.
+                    throw new IllegalStateException("Cannot add \"" + new String(word, 0, length) + "\" to the trie. " +
+                            "Did you pack before adding?");
             }
+            node.isValidWord = true;
         }
 
         /**
@@ -166,9 +185,14 @@ public final class LinkedTrie implements Trie {
             if (contents.startsWith(s))
                 return true;
 
+            // If s diverges from the contents of this node, which may happen in a packed node, it is not a prefix.
+            if (!s.startsWith(contents))
+                return false;
+
             // Chop off the contents and recurse.
             final String s2 = s.substring(contents.length());
-            return children.containsKey(s2.charAt(0)) && children.get(s2.charAt(0)).isPrefix(s2);
+            final LinkedTrieNode child = child(s2.charAt(0));
+            return child != null && child.isPrefix(s2);
         }
 
         /**
@@ -188,24 +212,100 @@ public final class LinkedTrie implements Trie {
                 return isValidWord;
 
             // Otherwise, we recurse via children if there is an entry for the next character.
-            return children.containsKey(s2.charAt(0)) && children.get(s2.charAt(0)).isWord(s2);
+            final LinkedTrieNode child = child(s2.charAt(0));
+            return child != null && child.isWord(s2);
         }
 
         public String getContents() {
             return contents;
         }
+
+        /**
+         * @return the estimated number of bytes of heap used by the node object itself
+         */
+        long nodeBytes() {
+            return HeapEstimates.object(3 * HeapEstimates.REFERENCE + 1);
+        }
+
+        /**
+         * @return the estimated number of bytes of heap used by the arrays of children, which are shared when empty
+         */
+        long childBytes() {
+            if (children.length == 0)
+                return 0;
+            return HeapEstimates.array(Character.BYTES, labels.length)
+                    + HeapEstimates.array(HeapEstimates.REFERENCE, children.length);
+        }
+
+        /**
+         * @return the estimated number of bytes of heap used by the contents, which are shared for single characters
+         */
+        long contentBytes() {
+            if (contents.length() == 1 && contents == contentsOf(contents.charAt(0)))
+                return 0;
+            return HeapEstimates.string(contents.length());
+        }
+
+        /**
+         * Estimate the number of bytes of heap used by this node, including its contents and arrays.
+         * Shared objects, i.e. the contents of single character nodes and empty arrays, are not counted.
+         * @return the estimated size of the node in bytes
+         */
+        long estimateBytes() {
+            return nodeBytes() + childBytes() + contentBytes();
+        }
+
+        /**
+         * Count the nodes visited by a lookup of a word fragment from this node, as per isPrefix and isWord.
+         * @param s the word fragment
+         * @return the number of nodes visited
+         */
+        int countNodesVisited(final String s) {
+            if (s.length() <= contents.length() || !s.startsWith(contents))
+                return 1;
+            final String s2 = s.substring(contents.length());
+            final LinkedTrieNode child = child(s2.charAt(0));
+            return child == null ? 1 : 1 + child.countNodesVisited(s2);
+        }
     }
     /*----- End of LinkedTrieNode -----*/
 
+    /**
+     * Create an empty trie. Used by ShardedTrieBuilder, which grafts subtries on afterwards.
+     */
+    LinkedTrie() {
+        root = new LinkedTrieNode();
+    }
+
+    /**
+     * Build the subtrie of the words beginning with a given character, and graft it under the root.
+     * Subtries for different characters do not share any nodes, so they may be built concurrently.
+     * @param first the first character of all of the words, which must be lowercase
+     * @param words the normalized words
+     * @throws IllegalArgumentException if a word does not begin with first
+     */
+    void addShard(final char first, final Collection<String> words) {
+        final LinkedTrieNode shard = new LinkedTrieNode(contentsOf(first), false);
+        for (final String word: words) {
+            if (word.isEmpty() || word.charAt(0) != first)
+                throw new IllegalArgumentException("Word \"" + word + "\" does not belong to shard " + first);
+            shard.add(word.toCharArray(), 1, word.length());
+        }
+
+        // The root is the only node shared between shards.
+        synchronized (root) {
+            root.put(first, shard);
+        }
+    }
+
     /**
      * Create a Trie from the supplied stream of words.
      * Note that diacritics are removed, and strings are converted to lowercase.
      * @param words the stream of words.
      */
     public LinkedTrie(final Stream<String> words) {
-        root = new LinkedTrieNode();
-        words.map(w -> Normalizer.normalize(w, Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]", ""))
-                .forEach(root::add);
+        this();
+        words.map(WordLists::normalize).forEach(w -> add(w.toCharArray(), w.length()));
     }
 
     /**
@@ -214,7 +314,8 @@ public final class LinkedTrie implements Trie {
      * @throws java.io.IOException if error occurs when trying to open file
      */
     public LinkedTrie(final String filename) throws java.io.IOException {
-        this(Files.lines(Paths.get(filename)));
+        this();
+        DictionaryReader.read(Paths.get(filename), this::add);
     }
 
     /**
@@ -223,15 +324,31 @@ public final class LinkedTrie implements Trie {
      * @throws java.io.FileNotFoundException if error occurs when trying to access file
      */
     public LinkedTrie(final File file) throws java.io.FileNotFoundException {
-        this(new BufferedReader(new FileReader(file)).lines());
+        this(new FileInputStream(file));
     }
 
     /**
-     * Create a trie from the supplied input stream, which should have one word per line.
+     * Create a trie from the supplied input stream, which should be UTF-8 with one word per line.
+     * The words are normalized and fed into the trie as characters, without creating a String per word.
      * @param is the input strem
      */
     public LinkedTrie(final InputStream is) {
-        this(new BufferedReader(new InputStreamReader(is)).lines());
+        this();
+        try {
+            DictionaryReader.read(is, this::add);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add a normalized word, supplied as characters, to an unpacked trie.
+     * @param word the buffer holding the word
+     * @param length the length of the word
+     * @throws IllegalStateException if the trie has been packed
+     */
+    private void add(final char[] word, final int length) {
+        root.add(word, 0, length);
     }
 
     /**
@@ -239,7 +356,9 @@ public final class LinkedTrie implements Trie {
      * Calling it is, however, unnecessary, and it is idempotent.
      */
     public void pack() {
-        root.pack();
+        // The root represents the empty string, so it is never merged with a child.
+        for (final LinkedTrieNode child: root.children)
+            child.pack();
     }
 
     /**
@@ -269,26 +388,142 @@ public final class LinkedTrie implements Trie {
      * @throws IllegalStateException if the trie has been packed and we cannot insert
      */
     public void addWord(final String s) throws IllegalStateException {
-        root.add(s);
+        final String word = s.toLowerCase();
+        add(word.toCharArray(), word.length());
+    }
+
+    /**
+     * A cursor over a linked trie. As packed nodes can represent several characters, a position is a node together
+     * with the number of characters of its contents that have been consumed.
+     */
+    private final class LinkedTrieCursor implements TrieCursor {
+        private LinkedTrieNode[] nodes = new LinkedTrieNode[16];
+        private int[] consumed = new int[16];
+        private int depth = 0;
+
+        LinkedTrieCursor() {
+            nodes[0] = root;
+        }
+
+        @Override
+        public boolean step(final char c) {
+            final LinkedTrieNode node = nodes[depth];
+            final char lc = Character.toLowerCase(c);
+
+            LinkedTrieNode next = node;
+            int nextConsumed = consumed[depth] + 1;
+            if (consumed[depth] < node.contents.length()) {
+                if (node.contents.charAt(consumed[depth]) != lc)
+                    return false;
+            } else {
+                next = node.child(lc);
+                if (next == null)
+                    return false;
+                nextConsumed = 1;
+            }
+
+            if (depth + 1 == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+                consumed = Arrays.copyOf(consumed, 2 * consumed.length);
+            }
+            ++depth;
+            nodes[depth] = next;
+            consumed[depth] = nextConsumed;
+            return true;
+        }
+
+        @Override
+        public void back() {
+            if (depth == 0)
+                throw new IllegalStateException("Cursor is at the root.");
+            nodes[depth--] = null;
+        }
+
+        @Override
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public boolean isWord() {
+            final LinkedTrieNode node = nodes[depth];
+            return consumed[depth] == node.contents.length() && node.isValidWord;
+        }
+
+        @Override
+        public boolean hasChildren() {
+            final LinkedTrieNode node = nodes[depth];
+            return consumed[depth] < node.contents.length() || node.children.length > 0;
+        }
+
+        @Override
+        public char nextChild(final char after) {
+            final LinkedTrieNode node = nodes[depth];
+            if (consumed[depth] < node.contents.length()) {
+                final char c = node.contents.charAt(consumed[depth]);
+                return c > after ? c : 0;
+            }
+            for (final char c: node.labels)
+                if (c > after)
+                    return c;
+            return 0;
+        }
+    }
+
+    /**
+     * Create a cursor positioned at the root of the trie.
+     * Note that the cursor is invalidated by any modification of the trie, i.e. addWord or pack.
+     * @return the cursor
+     */
+    @Override
+    public TrieCursor cursor() {
+        return new LinkedTrieCursor();
     }
 
     /**
-     * Dumps the tree by visiting each node.
+     * Dumps the tree by visiting each node, in alphabetical order.
+     * The words are enumerated lazily by a cursor, which builds no string but those of the words.
      * @param consumer the consumer that is passed each valid word
      */
     public void dump(final Consumer<String> consumer) {
-        final Stack<Pair<LinkedTrieNode, String>> nodes = new Stack<>();
-        nodes.push(new Pair<>(root, ""));
-        while (!nodes.empty()) {
-            final Pair<LinkedTrieNode, String> np = nodes.pop();
-            final LinkedTrieNode node = np.first;
-            final String str  = np.second + node.contents;
-
-            if (node.isValidWord)
-                consumer.accept(str);
+        forEach(consumer);
+    }
 
-            node.children.values().forEach(c -> nodes.push(new Pair<>(c, str)));
+    /**
+     * Estimate the heap used by the trie: the node objects, the arrays of children, and the contents of the nodes.
+     * @return the estimated bytes used by each structure
+     */
+    @Override
+    public Map<String, Long> estimateHeapUsage() {
+        long nodes = HeapEstimates.object(HeapEstimates.REFERENCE);
+        long children = 0;
+        long contents = 0;
+        final Deque<LinkedTrieNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final LinkedTrieNode node = stack.pop();
+            nodes += node.nodeBytes();
+            children += node.childBytes();
+            contents += node.contentBytes();
+            for (final LinkedTrieNode child: node.children)
+                stack.push(child);
         }
+
+        final Map<String, Long> usage = new LinkedHashMap<>();
+        usage.put("nodes", nodes);
+        usage.put("children", children);
+        usage.put("contents", contents);
+        return usage;
+    }
+
+    /**
+     * Count the nodes visited by a lookup: as nodes may be packed, this may be fewer than the length of the string.
+     * @param s the string
+     * @return the number of nodes visited, including the root
+     */
+    @Override
+    public int countNodesVisited(final String s) {
+        return root.countNodesVisited(s.toLowerCase());
     }
 
     /**
@@ -299,6 +534,16 @@ public final class LinkedTrie implements Trie {
         public long nodes  =  0;
         public long words  =  0;
 
+        // An estimate of the heap used by the nodes, in bytes.
+        public long bytes  =  0;
+
+        /**
+         * @return the estimated number of bytes used per node
+         */
+        public double bytesPerNode() {
+            return nodes == 0 ? 0 : (double) bytes / nodes;
+        }
+
         // In the regular trie case, it should be the case that each node minus the root contains one character.
         // We want to track, for each number of characters, how many nodes there in the packed tree.
         public final Map<Integer, Integer> nodesByCharCount = new TreeMap<>();
@@ -326,6 +571,7 @@ public final class LinkedTrie implements Trie {
             final int height = pr.second;
 
             ++stats.nodes;
+            stats.bytes += node.estimateBytes();
             stats.nodesByCharCount.put(node.contents.length(), stats.nodesByCharCount.getOrDefault(node.contents.length(), 0) + 1);
 
             final ArrayList<String> array = stats.stringCompressionsByCharCount.getOrDefault(node.contents.length(), new ArrayList<>());
@@ -337,7 +583,7 @@ public final class LinkedTrie implements Trie {
                 ++stats.words;
 
             // If there are no children, we are a contender for the height of the tree.
-            if (node.children.isEmpty())
+            if (node.children.length == 0)
                 if (height > stats.height)
                     stats.height = height;
 
@@ -347,7 +593,8 @@ public final class LinkedTrie implements Trie {
             }
 
             // Recurse over the children.
-            node.children.values().forEach(c -> nodes.push(new Pair<>(c, height + 1)));
+            for (final LinkedTrieNode c: node.children)
+                nodes.push(new Pair<>(c, height + 1));
         }
 
         return stats;
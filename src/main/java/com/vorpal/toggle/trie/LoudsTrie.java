@@ -0,0 +1,320 @@
+// LoudsTrie.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A succinct trie using the level-order unary degree sequence (LOUDS) encoding.
+ *
+ * The nodes are numbered in breadth-first order, with the root as node 0. Visiting them in that order, each node
+ * with d children contributes d ones followed by a zero to the bit vector, for roughly two bits per node. Node k > 0
+ * then corresponds to the k-th one, i.e. the edge leading into it, and its label is stored at index k of a packed
+ * byte array. The children of a node v are consecutive, and can be found from the position of the v-th zero:
+ *
+ *    start(v) = select0(v) + 1 (with start(0) = 0), end(v) = select0(v + 1), firstChild(v) = start(v) - v + 1.
+ *
+ * A second bit vector, indexed by node, marks the nodes representing valid words.
+ *
+ * As with LinkedTrie, diacritics are removed, and lookups are CASE INSENSITIVE.
+ */
+public final class LoudsTrie implements Trie {
+    // The root node.
+    private static final int ROOT = 0;
+
+    // Transitions are on characters, which after normalization are ASCII.
+    private static final int ALPHABET_SIZE = 128;
+
+    private final RankSelectBitVector louds;
+    private final RankSelectBitVector terminals;
+    private final byte[] labels;
+    private final int nodes;
+    private final int words;
+
+    /**
+     * Create a trie from the supplied stream of words.
+     * Note that diacritics are removed, and strings are converted to lowercase.
+     * @param words the stream of words
+     */
+    public LoudsTrie(final Stream<String> words) {
+        this(WordLists.sortedWords(words));
+    }
+
+    /**
+     * Create a trie from the supplied filename.
+     * @param filename name of the file
+     * @throws java.io.IOException if error occurs when trying to open file
+     */
+    public LoudsTrie(final String filename) throws java.io.IOException {
+        this(WordLists.sortedWords(Paths.get(filename)));
+    }
+
+    /**
+     * Create a trie from the supplied file.
+     * @param file the file
+     * @throws java.io.FileNotFoundException if error occurs when trying to access file
+     */
+    public LoudsTrie(final File file) throws java.io.FileNotFoundException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Create a trie from the supplied input stream, which should be UTF-8 with one word per line.
+     * @param is the input stream
+     */
+    public LoudsTrie(final InputStream is) {
+        this(WordLists.sortedWords(is));
+    }
+
+    /**
+     * Create a trie from a sorted list of distinct, normalized words, by visiting the nodes breadth first.
+     * Each node is represented in the queue by the range of words that pass through it.
+     * @param sortedWords the words
+     */
+    private LoudsTrie(final List<String> sortedWords) {
+        final RankSelectBitVector.Builder loudsBuilder = new RankSelectBitVector.Builder();
+        final RankSelectBitVector.Builder terminalBuilder = new RankSelectBitVector.Builder();
+        byte[] labelArray = new byte[Math.max(16, sortedWords.size())];
+
+        // The queue of nodes to visit, as ranges [lo, hi) of words at a given depth.
+        int[] queueLo = new int[labelArray.length];
+        int[] queueHi = new int[labelArray.length];
+        int[] queueDepth = new int[labelArray.length];
+        queueLo[0] = 0;
+        queueHi[0] = sortedWords.size();
+        queueDepth[0] = 0;
+        int head = 0;
+        int tail = 1;
+
+        while (head < tail) {
+            int lo = queueLo[head];
+            final int hi = queueHi[head];
+            final int depth = queueDepth[head];
+            ++head;
+
+            // Since the words are sorted and distinct, only the first word in the range can end here.
+            final boolean terminal = lo < hi && sortedWords.get(lo).length() == depth;
+            terminalBuilder.append(terminal);
+            if (terminal)
+                ++lo;
+
+            // Enqueue the children.
+            int i = lo;
+            while (i < hi) {
+                final char c = sortedWords.get(i).charAt(depth);
+                if (c == 0 || c >= ALPHABET_SIZE)
+                    throw new IllegalArgumentException("Unsupported character in word: " + sortedWords.get(i));
+                int j = i + 1;
+                while (j < hi && sortedWords.get(j).charAt(depth) == c)
+                    ++j;
+
+                if (tail == queueLo.length) {
+                    queueLo = Arrays.copyOf(queueLo, 2 * tail);
+                    queueHi = Arrays.copyOf(queueHi, 2 * tail);
+                    queueDepth = Arrays.copyOf(queueDepth, 2 * tail);
+                }
+                if (tail == labelArray.length)
+                    labelArray = Arrays.copyOf(labelArray, 2 * tail);
+                queueLo[tail] = i;
+                queueHi[tail] = j;
+                queueDepth[tail] = depth + 1;
+                labelArray[tail] = (byte) c;
+                ++tail;
+
+                loudsBuilder.append(true);
+                i = j;
+            }
+            loudsBuilder.append(false);
+        }
+
+        louds = loudsBuilder.build();
+        terminals = terminalBuilder.build();
+        labels = Arrays.copyOf(labelArray, tail);
+        nodes = tail;
+        words = sortedWords.size();
+    }
+
+    /**
+     * @param node the node
+     * @return the position in the LOUDS bit vector of the first child edge of the node
+     */
+    private long childrenStart(final int node) {
+        return node == ROOT ? 0 : louds.select0(node) + 1;
+    }
+
+    /**
+     * Follow the transition from a node on a character.
+     * @param node the node
+     * @param c the character
+     * @return the child node, or -1 if there is no such transition
+     */
+    private int transition(final int node, final char c) {
+        final char lc = Character.toLowerCase(c);
+        if (lc >= ALPHABET_SIZE)
+            return -1;
+
+        final long start = childrenStart(node);
+        final long end = louds.select0(node + 1);
+        final int first = (int) (start - node + 1);
+
+        // The children are in alphabetical order, so binary search on their labels.
+        int lo = first;
+        int hi = first + (int) (end - start) - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final byte label = labels[mid];
+            if (label < lc)
+                lo = mid + 1;
+            else if (label > lc)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private boolean hasChildren(final int node) {
+        return louds.get(childrenStart(node));
+    }
+
+    /**
+     * Walk the trie from the root along the specified string.
+     * @param s the string
+     * @return the node reached, or -1 if the walk falls off the trie
+     */
+    private int walk(final String s) {
+        int node = ROOT;
+        for (int i = 0; i < s.length() && node >= 0; ++i)
+            node = transition(node, s.charAt(i));
+        return node;
+    }
+
+    /**
+     * Determine if, according to this trie, the specified string is a prefix.
+     * @param s the string to check
+     * @return true if it is a prefix, and false otherwise
+     */
+    @Override
+    public boolean isPrefix(final String s) {
+        return walk(s) >= 0;
+    }
+
+    /**
+     * Determine if, according to this trie, the specified string is a valid word.
+     * @param s the string to check
+     * @return true if it is a valid word, and false otherwise
+     */
+    @Override
+    public boolean isWord(final String s) {
+        final int node = walk(s);
+        return node >= 0 && terminals.get(node);
+    }
+
+    /**
+     * Create a cursor positioned at the root of the trie.
+     * @return the cursor
+     */
+    @Override
+    public TrieCursor cursor() {
+        return new IntStateCursor(ROOT) {
+            @Override
+            int transition(final int state, final char c) {
+                return LoudsTrie.this.transition(state, c);
+            }
+
+            @Override
+            boolean isTerminal(final int state) {
+                return terminals.get(state);
+            }
+
+            @Override
+            boolean hasChildren(final int state) {
+                return LoudsTrie.this.hasChildren(state);
+            }
+
+            @Override
+            char nextChild(final int state, final char after) {
+                final long start = childrenStart(state);
+                final long end = louds.select0(state + 1);
+                final int first = (int) (start - state + 1);
+                for (int child = first; child < first + (int) (end - start); ++child)
+                    if (labels[child] > after)
+                        return (char) labels[child];
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Dumps the words in the trie in alphabetical order.
+     * @param consumer the consumer that is passed each valid word
+     */
+    @Override
+    public void dump(final Consumer<String> consumer) {
+        dump(ROOT, new StringBuilder(), consumer);
+    }
+
+    private void dump(final int node, final StringBuilder prefix, final Consumer<String> consumer) {
+        if (terminals.get(node))
+            consumer.accept(prefix.toString());
+
+        final long start = childrenStart(node);
+        final long end = louds.select0(node + 1);
+        final int first = (int) (start - node + 1);
+        for (int child = first; child < first + end - start; ++child) {
+            prefix.append((char) labels[child]);
+            dump(child, prefix, consumer);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+
+    /**
+     * Estimate the heap used by the trie: the bit vectors, with their rank / select directories, and the labels.
+     * @return the estimated bytes used by each structure
+     */
+    @Override
+    public Map<String, Long> estimateHeapUsage() {
+        final Map<String, Long> usage = new LinkedHashMap<>();
+        usage.put("louds", louds.estimateHeapBytes());
+        usage.put("terminals", terminals.estimateHeapBytes());
+        usage.put("labels", HeapEstimates.array(Byte.BYTES, labels.length));
+        return usage;
+    }
+
+    /**
+     * @return the number of words in the trie
+     */
+    public int getNumberOfWords() {
+        return words;
+    }
+
+    /**
+     * @return the number of nodes in the trie, including the root
+     */
+    public int getNumberOfNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the total size of the encoding, in bits, including the rank / select directories and the labels
+     */
+    public long getSizeInBits() {
+        return louds.sizeInBits() + terminals.sizeInBits() + (long) Byte.SIZE * labels.length;
+    }
+
+    /**
+     * @return the number of bits used per node of the trie
+     */
+    public double getBitsPerNode() {
+        return (double) getSizeInBits() / nodes;
+    }
+}
@@ -0,0 +1,198 @@
+// MappedDoubleArrayTrie.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A double-array trie whose base and check arrays live in a buffer, typically memory-mapped from a snapshot file
+ * written by TrieSnapshot. Lookups run directly against the buffer, so loading the trie costs nothing beyond mapping
+ * the file, and pages of the dictionary are only read in as they are touched.
+ *
+ * The layout and semantics are exactly those of DoubleArrayTrie.
+ * @see DoubleArrayTrie
+ * @see TrieSnapshot
+ */
+public final class MappedDoubleArrayTrie implements Trie {
+    private final IntBuffer base;
+    private final IntBuffer check;
+
+    // The payload of each state representing a valid word, or null if the trie does not store payloads.
+    private final IntBuffer payloads;
+
+    private final int length;
+
+    // The terminal states, indexed for rank and select, which is built when word IDs are first needed.
+    private volatile RankSelectBitVector terminals;
+    private final int words;
+
+    /**
+     * Wrap the arrays of a double-array trie.
+     * @param base the base array
+     * @param check the check array
+     * @param payloads the payloads array, or null if the trie does not store payloads
+     * @param words the number of words in the trie
+     */
+    MappedDoubleArrayTrie(final IntBuffer base, final IntBuffer check, final IntBuffer payloads, final int words) {
+        if (base.limit() != check.limit() || (payloads != null && payloads.limit() != base.limit()))
+            throw new IllegalArgumentException("base, check and payloads must have the same length");
+        this.base = base;
+        this.check = check;
+        this.payloads = payloads;
+        this.length = check.limit();
+        this.words = words;
+    }
+
+    /**
+     * Follow the transition from a state on a character.
+     * @param state the state
+     * @param c the character
+     * @return the new state, or -1 if there is no such transition
+     */
+    private int transition(final int state, final char c) {
+        final int t = (base.get(state) & DoubleArrayTrie.OFFSET_MASK) + Character.toLowerCase(c);
+        return t < length && check.get(t) == state ? t : -1;
+    }
+
+    /**
+     * Walk the trie from the root along the specified string.
+     * @param s the string
+     * @return the state reached, or -1 if the walk falls off the trie
+     */
+    private int walk(final String s) {
+        int state = DoubleArrayTrie.ROOT;
+        for (int i = 0; i < s.length() && state >= 0; ++i)
+            state = transition(state, s.charAt(i));
+        return state;
+    }
+
+    @Override
+    public boolean isPrefix(final String s) {
+        return walk(s) >= 0;
+    }
+
+    @Override
+    public boolean isWord(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (base.get(state) & DoubleArrayTrie.TERMINAL) != 0;
+    }
+
+    @Override
+    public int getPayload(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (base.get(state) & DoubleArrayTrie.TERMINAL) != 0 && payloads != null
+                ? payloads.get(state) : 0;
+    }
+
+    @Override
+    public int getWordId(final String s) {
+        final int state = walk(s);
+        return state >= 0 && (base.get(state) & DoubleArrayTrie.TERMINAL) != 0 ? (int) terminals().rank1(state) : -1;
+    }
+
+    @Override
+    public String getWord(final int id) {
+        if (id < 0 || id >= words)
+            throw new IndexOutOfBoundsException("No word with ID " + id);
+        return DoubleArrayTrie.spell((int) terminals().select1(id + 1), base::get, check::get);
+    }
+
+    private RankSelectBitVector terminals() {
+        // The index is immutable, so if two threads race to build it, either result may be used.
+        RankSelectBitVector index = terminals;
+        if (index == null)
+            terminals = index = DoubleArrayTrie.indexTerminals(base::get, length);
+        return index;
+    }
+
+    @Override
+    public TrieCursor cursor() {
+        return new IntStateCursor(DoubleArrayTrie.ROOT) {
+            @Override
+            int transition(final int state, final char c) {
+                return MappedDoubleArrayTrie.this.transition(state, c);
+            }
+
+            @Override
+            boolean isTerminal(final int state) {
+                return (base.get(state) & DoubleArrayTrie.TERMINAL) != 0;
+            }
+
+            @Override
+            boolean hasChildren(final int state) {
+                return (base.get(state) & DoubleArrayTrie.OFFSET_MASK) != 0;
+            }
+
+            @Override
+            int payload(final int state) {
+                return payloads == null ? 0 : payloads.get(state);
+            }
+
+            @Override
+            int wordId(final int state) {
+                return (int) terminals().rank1(state);
+            }
+        };
+    }
+
+    /**
+     * Dumps the words in the trie in alphabetical order.
+     * @param consumer the consumer that is passed each valid word
+     */
+    @Override
+    public void dump(final Consumer<String> consumer) {
+        dump(DoubleArrayTrie.ROOT, new StringBuilder(), consumer);
+    }
+
+    private void dump(final int state, final StringBuilder prefix, final Consumer<String> consumer) {
+        if ((base.get(state) & DoubleArrayTrie.TERMINAL) != 0)
+            consumer.accept(prefix.toString());
+
+        final int offset = base.get(state) & DoubleArrayTrie.OFFSET_MASK;
+        for (int c = 1; c < DoubleArrayTrie.ALPHABET_SIZE && offset + c < length; ++c) {
+            if (check.get(offset + c) == state) {
+                prefix.append((char) c);
+                dump(offset + c, prefix, consumer);
+                prefix.setLength(prefix.length() - 1);
+            }
+        }
+    }
+
+    /**
+     * Estimate the heap used by the trie. The arrays are outside of the heap, in the mapped file or a direct buffer,
+     * so only the buffer objects themselves are counted.
+     * @return the estimated bytes used by the buffers
+     */
+    @Override
+    public Map<String, Long> estimateHeapUsage() {
+        final Map<String, Long> usage = new LinkedHashMap<>();
+        usage.put("buffers", (payloads == null ? 2 : 3) * HeapEstimates.object(48));
+        return usage;
+    }
+
+    /**
+     * @return the number of words in the trie
+     */
+    public int getNumberOfWords() {
+        return words;
+    }
+
+    /**
+     * @return true if the trie stores a payload with each word, and false otherwise
+     */
+    public boolean hasPayloads() {
+        return payloads != null;
+    }
+
+    /**
+     * @return the number of slots in the base and check arrays
+     */
+    public int getCapacity() {
+        return length;
+    }
+}
@@ -0,0 +1,203 @@
+// RankSelectBitVector.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.util.Arrays;
+
+/**
+ * An immutable bit vector supporting rank and select queries, as needed by succinct data structures.
+ *
+ * rank1(i) counts the ones strictly before position i, and select0(k) finds the position of the k-th zero.
+ * To answer these quickly, we store the number of ones before each block of BLOCK_BITS bits (an overhead of 32 bits
+ * per block), and the block containing every SAMPLE_RATE-th zero (an overhead of 32 bits per sample).
+ * select1(k), which is rarely needed, binary searches the block ranks, and so needs no further samples.
+ */
+final class RankSelectBitVector {
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BLOCK_BITS = WORDS_PER_BLOCK * Long.SIZE;
+    private static final int SAMPLE_RATE = 512;
+
+    private final long[] words;
+    private final long length;
+
+    // blockRanks[b] is the number of ones before block b.
+    private final int[] blockRanks;
+
+    // zeroSamples[j] is the block containing zero number j * SAMPLE_RATE + 1.
+    private final int[] zeroSamples;
+
+    private final long ones;
+
+    /**
+     * Create a bit vector from the bits accumulated in a builder.
+     * @param builder the builder
+     */
+    private RankSelectBitVector(final Builder builder) {
+        this.length = builder.length;
+        this.words = Arrays.copyOf(builder.words, (int) ((length + Long.SIZE - 1) / Long.SIZE));
+
+        final int numBlocks = (words.length + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+        blockRanks = new int[numBlocks + 1];
+        int rank = 0;
+        for (int b = 0; b < numBlocks; ++b) {
+            blockRanks[b] = rank;
+            for (int w = b * WORDS_PER_BLOCK; w < Math.min(words.length, (b + 1) * WORDS_PER_BLOCK); ++w)
+                rank += Long.bitCount(words[w]);
+        }
+        blockRanks[numBlocks] = rank;
+        ones = rank;
+
+        final long zeros = length - ones;
+        zeroSamples = new int[(int) ((zeros + SAMPLE_RATE - 1) / SAMPLE_RATE)];
+        int block = 0;
+        for (int j = 0; j < zeroSamples.length; ++j) {
+            final long target = (long) j * SAMPLE_RATE + 1;
+            while (zerosBeforeBlock(block + 1) < target)
+                ++block;
+            zeroSamples[j] = block;
+        }
+    }
+
+    private long zerosBeforeBlock(final int block) {
+        return Math.min((long) block * BLOCK_BITS, length) - blockRanks[block];
+    }
+
+    /**
+     * @param i the position
+     * @return the bit at position i
+     */
+    boolean get(final long i) {
+        return (words[(int) (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param i the position, with 0 &lt;= i &lt;= length
+     * @return the number of ones before position i
+     */
+    long rank1(final long i) {
+        final int word = (int) (i >>> 6);
+        final int block = word / WORDS_PER_BLOCK;
+        long rank = blockRanks[block];
+        for (int w = block * WORDS_PER_BLOCK; w < word; ++w)
+            rank += Long.bitCount(words[w]);
+        if ((i & 63) != 0)
+            rank += Long.bitCount(words[word] & ((1L << i) - 1));
+        return rank;
+    }
+
+    /**
+     * @param k the index of the zero to find, with 1 &lt;= k &lt;= number of zeros
+     * @return the position of the k-th zero
+     */
+    long select0(final long k) {
+        // Find the block containing the zero, starting from the sample.
+        int block = zeroSamples[(int) ((k - 1) / SAMPLE_RATE)];
+        while (zerosBeforeBlock(block + 1) < k)
+            ++block;
+
+        // Find the word containing the zero.
+        long remaining = k - zerosBeforeBlock(block);
+        int word = block * WORDS_PER_BLOCK;
+        while (true) {
+            final int zeros = Long.SIZE - Long.bitCount(words[word]);
+            if (zeros >= remaining)
+                break;
+            remaining -= zeros;
+            ++word;
+        }
+
+        // Find the zero in the word by clearing the lowest remaining - 1 zeros of its complement.
+        long inverted = ~words[word];
+        for (long r = 1; r < remaining; ++r)
+            inverted &= inverted - 1;
+        return (long) word * Long.SIZE + Long.numberOfTrailingZeros(inverted);
+    }
+
+    /**
+     * @param k the index of the one to find, with 1 &lt;= k &lt;= number of ones
+     * @return the position of the k-th one
+     */
+    long select1(final long k) {
+        // Find the last block with fewer than k ones before it.
+        int lo = 0;
+        int hi = blockRanks.length - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (blockRanks[mid] < k)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+
+        // Find the word containing the one.
+        long remaining = k - blockRanks[lo];
+        int word = lo * WORDS_PER_BLOCK;
+        while (true) {
+            final int ones = Long.bitCount(words[word]);
+            if (ones >= remaining)
+                break;
+            remaining -= ones;
+            ++word;
+        }
+
+        // Find the one in the word by clearing the lowest remaining - 1 ones.
+        long bits = words[word];
+        for (long r = 1; r < remaining; ++r)
+            bits &= bits - 1;
+        return (long) word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @return the number of bits
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * @return the number of ones
+     */
+    long ones() {
+        return ones;
+    }
+
+    /**
+     * @return the total number of bits used by the vector and its directories
+     */
+    long sizeInBits() {
+        return (long) Long.SIZE * words.length + (long) Integer.SIZE * (blockRanks.length + zeroSamples.length);
+    }
+
+    /**
+     * @return the estimated number of bytes of heap used by the vector and its directories
+     */
+    long estimateHeapBytes() {
+        return HeapEstimates.object(3 * HeapEstimates.REFERENCE + 2 * Long.BYTES)
+                + HeapEstimates.array(Long.BYTES, words.length)
+                + HeapEstimates.array(Integer.BYTES, blockRanks.length)
+                + HeapEstimates.array(Integer.BYTES, zeroSamples.length);
+    }
+
+    /**
+     * Accumulates bits, which are then frozen into a RankSelectBitVector.
+     */
+    static final class Builder {
+        private long[] words = new long[16];
+        private long length = 0;
+
+        void append(final boolean bit) {
+            final int word = (int) (length >>> 6);
+            if (word == words.length)
+                words = Arrays.copyOf(words, 2 * words.length);
+            if (bit)
+                words[word] |= 1L << length;
+            ++length;
+        }
+
+        RankSelectBitVector build() {
+            return new RankSelectBitVector(this);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+// ShardedTrieBuilder.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * Builds a LinkedTrie from one or more word lists in parallel.
+ *
+ * The words are read and normalized concurrently (within and across files), deduplicated across all of the files, and
+ * partitioned by their leading letter. Each partition is then built into its own subtrie on the pool, and grafted
+ * under the root. Since the subtries are disjoint, no locking is needed except when grafting.
+ */
+public final class ShardedTrieBuilder {
+    private final ForkJoinPool pool;
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * Create a builder that uses the common pool.
+     */
+    public ShardedTrieBuilder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a builder that uses the specified pool.
+     * @param pool the pool on which to read files and build subtries
+     */
+    public ShardedTrieBuilder(final ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Add a word list, with one word per line, to the input.
+     * @param file the word list
+     * @return this builder
+     */
+    public ShardedTrieBuilder addFile(final Path file) {
+        files.add(Objects.requireNonNull(file));
+        return this;
+    }
+
+    /**
+     * Add several word lists to the input.
+     * @param files the word lists
+     * @return this builder
+     */
+    public ShardedTrieBuilder addFiles(final Collection<Path> files) {
+        files.forEach(this::addFile);
+        return this;
+    }
+
+    /**
+     * Read all of the word lists and build the trie.
+     * @return the trie
+     * @throws IOException if a word list cannot be read
+     */
+    public LinkedTrie build() throws IOException {
+        // Read and partition the words. The sets deduplicate words appearing in several files.
+        final ConcurrentMap<Character, Set<String>> shards = new ConcurrentHashMap<>();
+        final List<ForkJoinTask<?>> readers = new ArrayList<>();
+        for (final Path file: files)
+            readers.add(pool.submit(() -> {
+                try (final Stream<String> lines = Files.lines(file)) {
+                    // Running inside the pool, the parallel stream also splits the file across the pool's workers.
+                    lines.parallel()
+                            .map(WordLists::normalize)
+                            .filter(w -> !w.isEmpty())
+                            .forEach(w -> shards.computeIfAbsent(w.charAt(0), $ -> ConcurrentHashMap.newKeySet())
+                                    .add(w));
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        joinAll(readers);
+
+        // Build and graft the subtries.
+        final LinkedTrie trie = new LinkedTrie();
+        final List<ForkJoinTask<?>> builders = new ArrayList<>();
+        shards.forEach((first, words) -> builders.add(pool.submit(() -> trie.addShard(first, words))));
+        joinAll(builders);
+        return trie;
+    }
+
+    /**
+     * Wait for all tasks to complete, rethrowing the first IOException raised by any of them.
+     * @param tasks the tasks
+     * @throws IOException if a task failed with an IOException
+     */
+    private static void joinAll(final List<ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            tasks.forEach(ForkJoinTask::join);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
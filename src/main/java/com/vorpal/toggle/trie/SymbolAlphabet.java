@@ -0,0 +1,93 @@
+// SymbolAlphabet.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.util.*;
+
+/**
+ * An alphabet of symbols, each of which is a nonempty string of one or more characters, such as the faces of a set
+ * of dice, where QU is a single symbol. The symbols are numbered densely from 0 in alphabetical order, so that a
+ * sequence of symbols can be represented by small integer codes.
+ *
+ * As with the tries, symbols are normalized: diacritics are removed, and they are converted to lowercase.
+ * @see SymbolTrie
+ */
+public final class SymbolAlphabet {
+    // The maximum number of symbols, so that a set of symbols fits in a long.
+    public static final int MAX_SYMBOLS = Long.SIZE;
+
+    private final String[] symbols;
+    private final Map<String, Integer> codes;
+
+    /**
+     * Create an alphabet from a collection of symbols. Duplicates, after normalization, are ignored.
+     * @param symbols the symbols
+     * @throws IllegalArgumentException if a symbol is empty after normalization, or there are too many symbols
+     */
+    public SymbolAlphabet(final Collection<String> symbols) {
+        final SortedSet<String> normalized = new TreeSet<>();
+        for (final String symbol: symbols) {
+            final String s = WordLists.normalize(symbol);
+            if (s.isEmpty())
+                throw new IllegalArgumentException("Illegal symbol: \"" + symbol + "\"");
+            normalized.add(s);
+        }
+        if (normalized.size() > MAX_SYMBOLS)
+            throw new IllegalArgumentException("An alphabet can have at most " + MAX_SYMBOLS + " symbols, got "
+                    + normalized.size());
+
+        this.symbols = normalized.toArray(new String[0]);
+        final Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < this.symbols.length; ++i)
+            map.put(this.symbols[i], i);
+        codes = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return the number of symbols in the alphabet
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * Find the code of a symbol.
+     * @param symbol the symbol, which is normalized before lookup
+     * @return the code of the symbol, or -1 if it is not in the alphabet
+     */
+    public int code(final String symbol) {
+        return codes.getOrDefault(WordLists.normalize(symbol), -1);
+    }
+
+    /**
+     * @param code the code of a symbol
+     * @return the normalized symbol
+     */
+    public String symbol(final int code) {
+        return symbols[code];
+    }
+
+    /**
+     * @return the normalized symbols, in order of their codes
+     */
+    public List<String> symbols() {
+        return Collections.unmodifiableList(Arrays.asList(symbols));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof SymbolAlphabet && Arrays.equals(symbols, ((SymbolAlphabet) o).symbols));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(symbols);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(symbols);
+    }
+}
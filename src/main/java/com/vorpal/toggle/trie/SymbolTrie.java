@@ -0,0 +1,421 @@
+// SymbolTrie.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A trie whose transitions are on the symbols of a SymbolAlphabet, such as the faces of a set of dice, rather than
+ * on characters. It is compiled from a regular trie, and accepts exactly the sequences of symbols that spell words of
+ * that trie. A board can then represent its cells as symbol codes, and a search makes exactly one transition per die,
+ * even for multi-letter faces such as QU, without any string handling.
+ *
+ * Nodes are integers, with the root as node 0. Each node stores the set of symbols on which it has a transition as a
+ * bitmask, and its children are numbered consecutively in order of symbol, so the child on a symbol is found by
+ * counting the lower bits of the mask:
+ *
+ *    transition(v, s) = firstChild(v) + bitCount(mask(v) &amp; ((1 &lt;&lt; s) - 1)), if bit s of mask(v) is set.
+ *
+ * The high bit of the firstChild entry marks the nodes representing valid words, as in DoubleArrayTrie, and if the
+ * source trie stores payloads, they are carried over, so that a search can score a word at the node where it finds it.
+ * Likewise, if the source trie indexes its words, their IDs are carried over, so that a search can record the words
+ * that it finds in a BitSet without building their strings.
+ * A symbol trie is immutable, and is thus safe to share between threads.
+ */
+public final class SymbolTrie {
+    // The root node.
+    public static final int ROOT = 0;
+
+    // The flag marking a node as representing a valid word, and the mask extracting its first child.
+    private static final int TERMINAL = 0x80000000;
+    private static final int CHILD_MASK = ~TERMINAL;
+
+    // Compiled symbol tries, by source trie and alphabet. The source tries are held weakly, and as a symbol trie
+    // refers to its source trie, the symbol tries are held softly, so that discarding a dictionary discards the
+    // symbol tries compiled from it once they are no longer in use and memory is needed.
+    private static final Map<Trie, Map<SymbolAlphabet, SoftReference<SymbolTrie>>> cache = new WeakHashMap<>();
+
+    private final Trie dictionary;
+    private final SymbolAlphabet alphabet;
+    private long[] masks;
+    private int[] firstChild;
+
+    // The payload of each node representing a valid word, or null if every payload is 0.
+    private int[] payloads;
+
+    // The ID in the source trie of the word represented by each node, or null if the source does not index its words.
+    private int[] wordIds;
+
+    private int nodes;
+
+    // The number of symbols in the longest word, which bounds the depth of any search of the trie.
+    private final int maximumLength;
+
+    /**
+     * Compile a symbol trie from a trie.
+     * @param trie the trie, which must not be modified during compilation
+     * @param alphabet the alphabet
+     */
+    public SymbolTrie(final Trie trie, final SymbolAlphabet alphabet) {
+        this.dictionary = trie;
+        this.alphabet = alphabet;
+        masks = new long[1024];
+        firstChild = new int[1024];
+        payloads = new int[1024];
+        wordIds = new int[1024];
+        nodes = 1;
+
+        final TrieCursor cursor = trie.cursor();
+        if (cursor.isWord()) {
+            firstChild[ROOT] = TERMINAL;
+            payloads[ROOT] = cursor.payload();
+            wordIds[ROOT] = cursor.wordId();
+        }
+        expand(cursor, ROOT);
+
+        masks = Arrays.copyOf(masks, nodes);
+        firstChild = Arrays.copyOf(firstChild, nodes);
+        payloads = Arrays.stream(payloads, 0, nodes).anyMatch(p -> p != 0) ? Arrays.copyOf(payloads, nodes) : null;
+        wordIds = Arrays.stream(wordIds, 0, nodes).noneMatch(id -> id < 0) ? Arrays.copyOf(wordIds, nodes) : null;
+        maximumLength = findMaximumLength();
+    }
+
+    /**
+     * Get the symbol trie for a trie and alphabet, compiling it only if it has not already been compiled.
+     * As the result is shared, the trie must not be modified afterwards: use immutable tries here.
+     * @param trie the trie
+     * @param alphabet the alphabet
+     * @return the symbol trie
+     */
+    public static SymbolTrie of(final Trie trie, final SymbolAlphabet alphabet) {
+        synchronized (cache) {
+            final Map<SymbolAlphabet, SoftReference<SymbolTrie>> compiled = cache.computeIfAbsent(trie,
+                    t -> new HashMap<>());
+            final SoftReference<SymbolTrie> reference = compiled.get(alphabet);
+            SymbolTrie symbolTrie = reference == null ? null : reference.get();
+            if (symbolTrie == null) {
+                symbolTrie = new SymbolTrie(trie, alphabet);
+                compiled.put(alphabet, new SoftReference<>(symbolTrie));
+            }
+            return symbolTrie;
+        }
+    }
+
+    /**
+     * Create the children of a node, and recursively their descendants.
+     * The children are numbered before any descendants, so that they are consecutive.
+     * @param cursor the cursor, positioned at the node
+     * @param node the node
+     */
+    private void expand(final TrieCursor cursor, final int node) {
+        if (!cursor.hasChildren())
+            return;
+
+        final int depth = cursor.depth();
+        final int first = nodes;
+        long mask = 0;
+        for (int s = 0; s < alphabet.size(); ++s) {
+            if (!cursor.step(alphabet.symbol(s)))
+                continue;
+            if (nodes == masks.length) {
+                masks = Arrays.copyOf(masks, 2 * nodes);
+                firstChild = Arrays.copyOf(firstChild, 2 * nodes);
+                payloads = Arrays.copyOf(payloads, 2 * nodes);
+                wordIds = Arrays.copyOf(wordIds, 2 * nodes);
+            }
+            if (cursor.isWord()) {
+                firstChild[nodes] = TERMINAL;
+                payloads[nodes] = cursor.payload();
+                wordIds[nodes] = cursor.wordId();
+            }
+            ++nodes;
+            mask |= 1L << s;
+            cursor.rewind(depth);
+        }
+        masks[node] = mask;
+        firstChild[node] |= first;
+
+        int child = first;
+        for (int s = 0; s < alphabet.size(); ++s) {
+            if ((mask & (1L << s)) == 0)
+                continue;
+            cursor.step(alphabet.symbol(s));
+            expand(cursor, child++);
+            cursor.rewind(depth);
+        }
+    }
+
+    /**
+     * Create a symbol trie from its arrays. Used by restrict.
+     * @param dictionary the source trie
+     * @param alphabet the alphabet
+     * @param masks the masks of the nodes
+     * @param firstChild the first children of the nodes, with their terminal flags
+     * @param payloads the payloads of the nodes, or null if every payload is 0
+     * @param wordIds the IDs of the words of the nodes, or null if the source trie does not index its words
+     */
+    private SymbolTrie(final Trie dictionary, final SymbolAlphabet alphabet, final long[] masks,
+                       final int[] firstChild, final int[] payloads, final int[] wordIds) {
+        this.dictionary = dictionary;
+        this.alphabet = alphabet;
+        this.masks = masks;
+        this.firstChild = firstChild;
+        this.payloads = payloads;
+        this.wordIds = wordIds;
+        this.nodes = masks.length;
+        maximumLength = findMaximumLength();
+    }
+
+    /**
+     * Find the number of symbols in the longest word. As the children of a node are numbered after it, the depths
+     * of the nodes can be found in a single pass in order of node.
+     * @return the number of symbols in the longest word, or -1 if there are no words
+     */
+    private int findMaximumLength() {
+        final int[] depths = new int[nodes];
+        int maximum = -1;
+        for (int node = 0; node < nodes; ++node) {
+            if (isWord(node))
+                maximum = Math.max(maximum, depths[node]);
+            final int first = firstChild[node] & CHILD_MASK;
+            final int children = Long.bitCount(masks[node]);
+            for (int child = first; child < first + children; ++child)
+                depths[child] = depths[node] + 1;
+        }
+        return maximum;
+    }
+
+    /**
+     * Restrict the trie to the words that could possibly appear on a board, where each symbol may be used at most as
+     * many times as it appears, and a symbol may only be followed by those symbols adjacent to it somewhere on the
+     * board. Typically, this is a tiny fraction of the trie, so that searching the board for words touches far less
+     * memory, and prefixes that lead to no possible words are abandoned sooner.
+     *
+     * The restricted trie accepts every word that can be found on the board, but not only those, as the positions of
+     * the symbols are not taken into account. Thus, it can be shared by every board with the same symbols whose
+     * adjacencies are covered by the successors, e.g. the same dice on different board types.
+     * @param counts counts[s] is the number of times that symbol s appears
+     * @param successors successors[s] is the set of symbols, as a mask, that may follow symbol s
+     * @return the restricted trie
+     * @throws IllegalArgumentException if counts or successors are not of the size of the alphabet
+     */
+    public SymbolTrie restrict(final int[] counts, final long[] successors) {
+        if (counts.length != alphabet.size() || successors.length != alphabet.size())
+            throw new IllegalArgumentException("counts and successors must have an entry per symbol");
+
+        // Build the trie of the sequences satisfying the restrictions, and then copy the nodes that lead to words.
+        final Restriction restriction = new Restriction(counts.clone(), successors);
+        restriction.expand(ROOT, ROOT, -1);
+        return restriction.compact();
+    }
+
+    /**
+     * Restrict the trie to the words using each symbol at most as many times as it appears, regardless of adjacency.
+     * The result can be shared by all boards showing the same symbols, whatever their types or arrangements.
+     * @param counts counts[s] is the number of times that symbol s appears
+     * @return the restricted trie
+     * @throws IllegalArgumentException if counts is not of the size of the alphabet
+     */
+    public SymbolTrie restrict(final int[] counts) {
+        final long[] successors = new long[counts.length];
+        Arrays.fill(successors, -1L);
+        return restrict(counts, successors);
+    }
+
+    /**
+     * The state of a restriction of the trie, i.e. a trie under construction, where nodes are first allocated for
+     * every sequence of symbols satisfying the restrictions, and then those that do not lead to words are removed.
+     */
+    private final class Restriction {
+        private final int[] counts;
+        private final long[] successors;
+        private long[] candidates = new long[256];
+        private int[] first = new int[256];
+        private int[] sources = new int[256];
+        private final BitSet alive = new BitSet();
+        private int size = 1;
+
+        // The symbols that have not been used up, as a mask.
+        private long available = 0;
+
+        Restriction(final int[] counts, final long[] successors) {
+            this.counts = counts;
+            this.successors = successors;
+            for (int s = 0; s < counts.length; ++s)
+                if (counts[s] > 0)
+                    available |= 1L << s;
+        }
+
+        /**
+         * Allocate the children of a node, and recursively their descendants.
+         * @param node the node
+         * @param source the corresponding node of this trie
+         * @param last the last symbol in the sequence leading to the node, or -1 for the root
+         * @return true if the node or any of its descendants is a word, and false otherwise
+         */
+        boolean expand(final int node, final int source, final int last) {
+            final long mask = masks[source] & available & (last < 0 ? ~0L : successors[last]);
+            final int start = size;
+            size += Long.bitCount(mask);
+            if (size > candidates.length) {
+                final int capacity = Math.max(size, 2 * candidates.length);
+                candidates = Arrays.copyOf(candidates, capacity);
+                first = Arrays.copyOf(first, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+            }
+            candidates[node] = mask;
+            first[node] = start;
+            sources[node] = source;
+
+            boolean word = isWord(source);
+            int child = start;
+            for (long m = mask; m != 0; m &= m - 1) {
+                final int s = Long.numberOfTrailingZeros(m);
+                final long bit = Long.lowestOneBit(m);
+                if (--counts[s] == 0)
+                    available &= ~bit;
+                word |= expand(child++, transition(source, s), s);
+                if (counts[s]++ == 0)
+                    available |= bit;
+            }
+            if (word)
+                alive.set(node);
+            return word;
+        }
+
+        /**
+         * Copy the nodes that lead to words into a new trie, numbering them breadth first so that the children of
+         * each node remain consecutive.
+         * @return the new trie
+         */
+        SymbolTrie compact() {
+            final int[] queue = new int[alive.cardinality()];
+            final long[] newMasks = new long[queue.length];
+            final int[] newFirst = new int[queue.length];
+            final int[] newPayloads = payloads == null ? null : new int[queue.length];
+            final int[] newWordIds = wordIds == null ? null : new int[queue.length];
+            if (queue.length == 0)
+                return new SymbolTrie(dictionary, alphabet, new long[1], new int[1], null,
+                        wordIds == null ? null : new int[1]);
+
+            int tail = 1;
+            for (int head = 0; head < tail; ++head) {
+                final int node = queue[head];
+                long mask = 0;
+                final int start = tail;
+                int child = first[node];
+                for (long m = candidates[node]; m != 0; m &= m - 1, ++child) {
+                    if (!alive.get(child))
+                        continue;
+                    mask |= Long.lowestOneBit(m);
+                    queue[tail++] = child;
+                }
+                newMasks[head] = mask;
+                newFirst[head] = start | (isWord(sources[node]) ? TERMINAL : 0);
+                if (newPayloads != null)
+                    newPayloads[head] = payloads[sources[node]];
+                if (newWordIds != null)
+                    newWordIds[head] = wordIds[sources[node]];
+            }
+            return new SymbolTrie(dictionary, alphabet, newMasks, newFirst, newPayloads, newWordIds);
+        }
+    }
+
+    /**
+     * Follow the transition from a node on a symbol.
+     * @param node the node
+     * @param symbol the code of the symbol
+     * @return the child node, or -1 if there is no such transition
+     */
+    public int transition(final int node, final int symbol) {
+        final long mask = masks[node];
+        final long bit = 1L << symbol;
+        if ((mask & bit) == 0)
+            return -1;
+        return (firstChild[node] & CHILD_MASK) + Long.bitCount(mask & (bit - 1));
+    }
+
+    /**
+     * @param node the node
+     * @return true if the sequence of symbols leading to the node spells a valid word, and false otherwise
+     */
+    public boolean isWord(final int node) {
+        return (firstChild[node] & TERMINAL) != 0;
+    }
+
+    /**
+     * @param node the node
+     * @return the payload of the word spelled by the sequence of symbols leading to the node, or 0 if it is not a word
+     */
+    public int payload(final int node) {
+        return payloads == null ? 0 : payloads[node];
+    }
+
+    /**
+     * @return true if the source trie stores payloads with its words, and false otherwise
+     */
+    public boolean hasPayloads() {
+        return payloads != null;
+    }
+
+    /**
+     * @param node the node
+     * @return the ID in the source trie of the word spelled by the sequence of symbols leading to the node, or -1 if
+     *         it is not a word or the source trie does not index its words
+     * @see Trie#getWordId
+     */
+    public int wordId(final int node) {
+        return wordIds != null && isWord(node) ? wordIds[node] : -1;
+    }
+
+    /**
+     * @return true if the source trie indexes its words, so that each word has an ID, and false otherwise
+     */
+    public boolean hasWordIds() {
+        return wordIds != null;
+    }
+
+    /**
+     * @return the source trie, i.e. the dictionary from which this trie was compiled, and to which its word IDs refer
+     */
+    public Trie getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @param node the node
+     * @return true if the node has a transition on any symbol, and false otherwise
+     */
+    public boolean hasChildren(final int node) {
+        return masks[node] != 0;
+    }
+
+    /**
+     * @return the alphabet of the trie
+     */
+    public SymbolAlphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @return the number of symbols in the longest word, which bounds the number of dice in any word on a board, or -1
+     *         if there are no words
+     */
+    public int getMaximumLength() {
+        return maximumLength;
+    }
+
+    /**
+     * @return the number of nodes in the trie, including the root
+     */
+    public int getNumberOfNodes() {
+        return nodes;
+    }
+}
@@ -4,12 +4,16 @@
 
 package com.vorpal.toggle.trie;
 
+import java.util.*;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Interface for a trie structure, used for fast word lookups.
+ * A trie is also an Iterable over its words, which are enumerated lazily in alphabetical order.
  */
-public interface Trie {
+public interface Trie extends Iterable<String> {
     /**
      * Given a string, check if it is contained, as a word or suffix of other words in the tree.
      * @param s the string to check
@@ -31,7 +35,120 @@ public interface Trie {
      */
     void dump(final Consumer<String> consumer);
 
+    /**
+     * @return an iterator over the words of the trie in alphabetical order, which finds each word as it is requested
+     */
+    @Override
+    default Iterator<String> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * @return a spliterator over the words of the trie in alphabetical order, which can be split between subtrees
+     */
+    @Override
+    default Spliterator<String> spliterator() {
+        return new WordSpliterator(this, "", null, null);
+    }
+
+    /**
+     * @return a lazy stream of the words of the trie in alphabetical order
+     */
+    default Stream<String> words() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Stream the words beginning with a prefix, in alphabetical order, visiting only the subtree of the prefix.
+     * @param prefix the prefix, which is normalized
+     * @return a lazy stream of the words beginning with the prefix, including the prefix if it is a word
+     */
+    default Stream<String> wordsWithPrefix(final String prefix) {
+        return StreamSupport.stream(new WordSpliterator(this, WordLists.normalize(prefix), null, null), false);
+    }
+
+    /**
+     * Stream the words in a range, in alphabetical order. The walk starts at the lower bound, rather than at the first
+     * word, and stops at the upper bound.
+     * @param from the inclusive lower bound, which is normalized, or null for no lower bound
+     * @param to the exclusive upper bound, which is normalized, or null for no upper bound
+     * @return a lazy stream of the words w such that from &lt;= w &lt; to
+     */
+    default Stream<String> wordsInRange(final String from, final String to) {
+        return StreamSupport.stream(new WordSpliterator(this, "",
+                from == null ? null : WordLists.normalize(from),
+                to == null ? null : WordLists.normalize(to)), false);
+    }
+
+    /**
+     * Get the payload stored with a word, e.g. its frequency or point value. Not all tries store payloads: those that
+     * do are built with a function giving the payload of each word.
+     * @param s the word
+     * @return the payload, or 0 if s is not a word or the trie does not store payloads
+     */
+    default int getPayload(final String s) {
+        final TrieCursor cursor = cursor();
+        return cursor.step(s) ? cursor.payload() : 0;
+    }
+
+    /**
+     * Get the ID of a word. Tries that index their words number them densely, from 0 to one less than the number of
+     * words, so that a set of words, e.g. those found on a board, can be represented by a BitSet.
+     * @param s the word
+     * @return the ID, or -1 if s is not a word or the trie does not index its words
+     */
+    default int getWordId(final String s) {
+        final TrieCursor cursor = cursor();
+        return cursor.step(s) ? cursor.wordId() : -1;
+    }
+
+    /**
+     * Get the word with an ID. A trie that does not index its words has no word IDs, so this always throws.
+     * @param id the ID
+     * @return the word
+     * @throws IndexOutOfBoundsException if there is no word with the ID
+     */
+    default String getWord(final int id) {
+        throw new IndexOutOfBoundsException("No word with ID " + id);
+    }
+
+    /**
+     * Create a cursor positioned at the root of the trie, for walking the trie one character at a time.
+     * @return the cursor
+     */
+    TrieCursor cursor();
+
+    /**
+     * Estimate the heap retained by the trie, broken down by the structures that comprise it. The estimates assume a
+     * 64-bit JVM with compressed references.
+     * @return the estimated number of bytes used by each structure, by name
+     */
+    default Map<String, Long> estimateHeapUsage() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Count the nodes of the trie visited by a lookup of a string, i.e. by isPrefix or isWord, including the root.
+     * By default, this is one node per character matched, as seen by a cursor.
+     * @param s the string
+     * @return the number of nodes visited
+     */
+    default int countNodesVisited(final String s) {
+        final TrieCursor cursor = cursor();
+        int visited = 1;
+        for (int i = 0; i < s.length() && cursor.step(s.charAt(i)); ++i)
+            ++visited;
+        return visited;
+    }
+
+    /**
+     * Get the trie of the default dictionary. As the default dictionary is never modified, we use the compact,
+     * immutable double-array representation. If the build has compiled a snapshot of the dictionary, we load that
+     * (memory-mapping it if possible) instead of parsing the word list. The trie is loaded once, and shared by all
+     * callers through the default DictionaryRegistry.
+     * @return the default trie
+     */
     static Trie createDefaultTrie() {
-        return new LinkedTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        return DictionaryRegistry.getDefault().get(DictionaryRegistry.DEFAULT);
     }
 }
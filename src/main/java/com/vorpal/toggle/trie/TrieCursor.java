@@ -0,0 +1,115 @@
+// TrieCursor.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+/**
+ * A stateful position in a trie, used to walk the trie one character at a time instead of looking up whole strings
+ * from the root. This lets a backtracking search (such as finding the words on a board) extend and retract its
+ * current prefix in O(1) per character.
+ *
+ * A cursor remembers the path that it has taken, so steps can be undone with back or rewind. Cursors are not
+ * thread-safe, and are cheap to create: each thread should use its own.
+ *
+ * As with lookups, steps are CASE INSENSITIVE.
+ */
+public interface TrieCursor {
+    /**
+     * Advance the cursor by a single character.
+     * @param c the character
+     * @return true if the prefix extended by c is in the trie, in which case the cursor has moved, and false
+     *         otherwise, in which case the cursor is unchanged
+     */
+    boolean step(final char c);
+
+    /**
+     * Advance the cursor by all the characters of a string.
+     * @param s the string
+     * @return true if the prefix extended by s is in the trie, in which case the cursor has moved, and false
+     *         otherwise, in which case the cursor is unchanged
+     */
+    default boolean step(final String s) {
+        final int start = depth();
+        for (int i = 0; i < s.length(); ++i)
+            if (!step(s.charAt(i))) {
+                rewind(start);
+                return false;
+            }
+        return true;
+    }
+
+    /**
+     * Undo the most recent character step.
+     * @throws IllegalStateException if the cursor is at the root
+     */
+    void back();
+
+    /**
+     * Undo steps until the cursor is at the specified depth.
+     * @param depth the depth, which must be at most the current depth
+     * @throws IllegalArgumentException if depth is negative or greater than the current depth
+     */
+    default void rewind(final int depth) {
+        if (depth < 0 || depth > depth())
+            throw new IllegalArgumentException("Cannot rewind to depth " + depth + " from depth " + depth());
+        while (depth() > depth)
+            back();
+    }
+
+    /**
+     * Get the payload stored with the word at which the cursor is positioned, e.g. its frequency or point value.
+     * @return the payload, or 0 if the cursor is not positioned at a word or the trie does not store payloads
+     */
+    default int payload() {
+        return 0;
+    }
+
+    /**
+     * Find the next character, in alphabetical order, on which the cursor can step, so that the children of a prefix
+     * can be enumerated in order. The cursor does not move.
+     * @param after the character after which to search, or 0 to find the first child
+     * @return the least character greater than after on which step would succeed, or 0 if there is none
+     */
+    default char nextChild(final char after) {
+        // Normalized words consist of lowercase ASCII characters, and steps are case insensitive.
+        for (char c = (char) (after + 1); c < DoubleArrayTrie.ALPHABET_SIZE; ++c)
+            if (Character.toLowerCase(c) == c && step(c)) {
+                back();
+                return c;
+            }
+        return 0;
+    }
+
+    /**
+     * Get the ID of the word at which the cursor is positioned.
+     * @return the ID, or -1 if the cursor is not positioned at a word or the trie does not index its words
+     * @see Trie#getWordId
+     */
+    default int wordId() {
+        return -1;
+    }
+
+    /**
+     * Return the cursor to the root of the trie.
+     */
+    default void reset() {
+        rewind(0);
+    }
+
+    /**
+     * @return the number of characters in the prefix at which the cursor is positioned
+     */
+    int depth();
+
+    /**
+     * @return true if the prefix at which the cursor is positioned is a valid word
+     */
+    boolean isWord();
+
+    /**
+     * @return true if the prefix at which the cursor is positioned can be extended, i.e. it is a proper prefix of
+     *         some word
+     */
+    boolean hasChildren();
+}
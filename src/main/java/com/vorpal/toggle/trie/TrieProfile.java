@@ -0,0 +1,118 @@
+// TrieProfile.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A profile of a trie implementation, with which to choose a representation of a dictionary for a memory budget:
+ * how long it takes to build, how much heap it retains (broken down by structure), and how much work a lookup does,
+ * in terms of both nodes visited and time.
+ */
+public final class TrieProfile {
+    /**
+     * The cost of a kind of lookup, i.e. isPrefix or isWord, over a collection of queries.
+     */
+    public static final class LookupCost {
+        public final long lookups;
+        public final long nodesVisited;
+        public final int maximumNodesVisited;
+        public final long nanos;
+
+        private LookupCost(final long lookups, final long nodesVisited, final int maximumNodesVisited,
+                           final long nanos) {
+            this.lookups = lookups;
+            this.nodesVisited = nodesVisited;
+            this.maximumNodesVisited = maximumNodesVisited;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the average number of nodes visited per lookup
+         */
+        public double averageNodesVisited() {
+            return lookups == 0 ? 0 : (double) nodesVisited / lookups;
+        }
+
+        /**
+         * @return the average time taken per lookup, in nanoseconds
+         */
+        public double nanosPerLookup() {
+            return lookups == 0 ? 0 : (double) nanos / lookups;
+        }
+    }
+
+    // The number of times that the queries are run before timing them, so that the lookups have been compiled.
+    private static final int WARMUP_ROUNDS = 2;
+
+    public final String name;
+    public final long buildNanos;
+    public final Map<String, Long> heapUsage;
+    public final long heapBytes;
+    public final LookupCost prefixCost;
+    public final LookupCost wordCost;
+
+    private TrieProfile(final String name, final long buildNanos, final Map<String, Long> heapUsage,
+                        final LookupCost prefixCost, final LookupCost wordCost) {
+        this.name = name;
+        this.buildNanos = buildNanos;
+        this.heapUsage = Collections.unmodifiableMap(heapUsage);
+        this.heapBytes = heapUsage.values().stream().mapToLong(Long::longValue).sum();
+        this.prefixCost = prefixCost;
+        this.wordCost = wordCost;
+    }
+
+    /**
+     * Build a trie and profile it.
+     * @param name the name of the trie, for reporting
+     * @param builder builds the trie: the time that it takes is reported as the build time
+     * @param queries the strings to look up with isPrefix and isWord, which should include misses as well as hits
+     * @return the profile
+     */
+    public static TrieProfile profile(final String name, final Supplier<? extends Trie> builder,
+                                      final Collection<String> queries) {
+        final long start = System.nanoTime();
+        final Trie trie = builder.get();
+        final long buildNanos = System.nanoTime() - start;
+        return new TrieProfile(name, buildNanos, new LinkedHashMap<>(trie.estimateHeapUsage()),
+                measure(trie, trie::isPrefix, queries), measure(trie, trie::isWord, queries));
+    }
+
+    /**
+     * Measure the cost of a kind of lookup over the queries.
+     * @param trie the trie
+     * @param lookup the lookup
+     * @param queries the queries
+     * @return the cost
+     */
+    private static LookupCost measure(final Trie trie, final Predicate<String> lookup,
+                                      final Collection<String> queries) {
+        long nodesVisited = 0;
+        int maximumNodesVisited = 0;
+        for (final String query: queries) {
+            final int visited = trie.countNodesVisited(query);
+            nodesVisited += visited;
+            maximumNodesVisited = Math.max(maximumNodesVisited, visited);
+        }
+
+        // Accumulate the results, so that the lookups cannot be optimized away.
+        int hits = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; ++round)
+            for (final String query: queries)
+                if (lookup.test(query))
+                    ++hits;
+        final long start = System.nanoTime();
+        for (final String query: queries)
+            if (lookup.test(query))
+                ++hits;
+        final long nanos = System.nanoTime() - start;
+        if (hits < 0)
+            throw new IllegalStateException();
+
+        return new LookupCost(queries.size(), nodesVisited, maximumNodesVisited, nanos);
+    }
+}
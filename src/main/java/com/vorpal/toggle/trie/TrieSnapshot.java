@@ -0,0 +1,242 @@
+// TrieSnapshot.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes compiled tries in a versioned binary snapshot format, so that a process can start using a
+ * dictionary without parsing and normalizing the word list.
+ *
+ * A snapshot holds a DoubleArrayTrie, and is laid out as the following big-endian ints:
+ *
+ * 1. MAGIC, identifying the file as a trie snapshot;
+ * 2. the format VERSION;
+ * 3. the number of words in the trie;
+ * 4. the length n of the base and check arrays;
+ * 5. 1 if the trie stores payloads, and 0 otherwise;
+ * 6. the n entries of base;
+ * 7. the n entries of check; and
+ * 8. if the trie stores payloads, the n entries of payloads.
+ *
+ * Snapshots can be generated from the command line (which is what the Maven build does) with:
+ *
+ *    java com.vorpal.toggle.trie.TrieSnapshot dictionary.txt dictionary.trie
+ */
+public final class TrieSnapshot {
+    private TrieSnapshot() {}
+
+    // "TGLT" in ASCII.
+    public static final int MAGIC = 0x54474c54;
+    public static final int VERSION = 2;
+
+    /**
+     * Thrown when a snapshot is valid, but was written in a different version of the format, e.g. by an older build.
+     */
+    public static final class UnsupportedVersionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedVersionException(final int version) {
+            super("Unsupported trie snapshot version: " + version);
+        }
+    }
+
+    // The size of the header, in bytes.
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    /**
+     * Write a trie to a snapshot file.
+     * @param trie the trie
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final DoubleArrayTrie trie, final Path path) throws IOException {
+        final int[] base = trie.getBase();
+        final int[] check = trie.getCheck();
+        final int[] payloads = trie.getPayloads();
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size(base.length, payloads != null))
+                .order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(trie.getNumberOfWords()).putInt(base.length)
+                .putInt(payloads != null ? 1 : 0);
+        final IntBuffer ints = buffer.asIntBuffer().put(base).put(check);
+        if (payloads != null)
+            ints.put(payloads);
+        buffer.rewind();
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Memory-map a snapshot file. The mapping remains valid after the file is closed, and lookups run directly
+     * against it.
+     * @param path the snapshot file
+     * @return the trie
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MappedDoubleArrayTrie map(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Trie snapshot is too large: " + channel.size() + " bytes.");
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read a snapshot from a stream into memory. This is for snapshots that cannot be mapped, such as those packaged
+     * inside a jar.
+     * @param is the input stream
+     * @return the trie
+     * @throws IOException if the stream cannot be read or is not a valid snapshot
+     */
+    public static MappedDoubleArrayTrie read(final InputStream is) throws IOException {
+        final ReadableByteChannel channel = Channels.newChannel(is);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        final int length = checkHeader(header);
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size(length, hasPayloads(header)));
+        header.rewind();
+        buffer.put(header);
+        readFully(channel, buffer);
+        return wrap(buffer);
+    }
+
+    /**
+     * Load a snapshot from a URL, mapping it if it is a file and reading it otherwise.
+     * @param url the location of the snapshot
+     * @return the trie
+     * @throws IOException if the snapshot cannot be read or is not valid
+     */
+    public static MappedDoubleArrayTrie load(final URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return map(Paths.get(url.toURI()));
+            } catch (final URISyntaxException e) {
+                // Fall through to reading the stream.
+            }
+        }
+        try (final InputStream is = url.openStream()) {
+            return read(is);
+        }
+    }
+
+    /**
+     * Create the trie views over a buffer containing a snapshot.
+     * @param buffer the buffer, positioned at the start of the snapshot
+     * @return the trie
+     * @throws IOException if the buffer does not contain a valid snapshot
+     */
+    private static MappedDoubleArrayTrie wrap(final ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.BIG_ENDIAN).rewind();
+        final int length = checkHeader(buffer);
+        final int words = buffer.getInt(2 * Integer.BYTES);
+        final boolean hasPayloads = hasPayloads(buffer);
+        if (buffer.limit() != size(length, hasPayloads))
+            throw new IOException("Truncated trie snapshot: expected " + length + " entries.");
+
+        final IntBuffer ints = buffer.asIntBuffer();
+        final IntBuffer base = slice(ints, 0, length);
+        final IntBuffer check = slice(ints, 1, length);
+        final IntBuffer payloads = hasPayloads ? slice(ints, 2, length) : null;
+        return new MappedDoubleArrayTrie(base, check, payloads, words);
+    }
+
+    /**
+     * Get one of the arrays of a snapshot.
+     * @param ints the snapshot, as ints
+     * @param index the index of the array, i.e. 0 for base, 1 for check, and 2 for payloads
+     * @param length the length of the arrays
+     * @return a view of the array
+     */
+    private static IntBuffer slice(final IntBuffer ints, final int index, final int length) {
+        final int start = HEADER_SIZE / Integer.BYTES + index * length;
+        ints.limit(start + length);
+        ints.position(start);
+        return ints.slice();
+    }
+
+    /**
+     * @param length the length of the arrays
+     * @param hasPayloads true if the snapshot stores payloads
+     * @return the size of the snapshot, in bytes
+     * @throws IOException if the length is negative, or the snapshot would not fit in a buffer
+     */
+    private static int size(final int length, final boolean hasPayloads) throws IOException {
+        if (length < 0)
+            throw new IOException("Illegal trie snapshot length: " + length);
+        final long size = HEADER_SIZE + (hasPayloads ? 3L : 2L) * length * Integer.BYTES;
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Trie snapshot of " + length + " entries is too large: " + size + " bytes.");
+        return (int) size;
+    }
+
+    private static boolean hasPayloads(final ByteBuffer header) throws IOException {
+        final int flag = header.getInt(4 * Integer.BYTES);
+        if (flag != 0 && flag != 1)
+            throw new IOException("Illegal trie snapshot payload flag: " + flag);
+        return flag == 1;
+    }
+
+    /**
+     * Validate the header of a snapshot.
+     * @param buffer a buffer holding at least the header, starting at position 0
+     * @return the length of the base and check arrays
+     * @throws UnsupportedVersionException if the snapshot is in a different version of the format
+     * @throws IOException if the header is not valid
+     */
+    private static int checkHeader(final ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a trie snapshot.");
+        final int version = buffer.getInt(Integer.BYTES);
+        if (version != VERSION)
+            throw new UnsupportedVersionException(version);
+        final int length = buffer.getInt(3 * Integer.BYTES);
+        if (length <= 0)
+            throw new IOException("Illegal trie snapshot length: " + length);
+        return length;
+    }
+
+    private static void readFully(final ReadableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new IOException("Truncated trie snapshot.");
+        buffer.flip();
+    }
+
+    /**
+     * Compile a word list into a snapshot.
+     * @param args the word list file, followed by the snapshot file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TrieSnapshot <word list> <snapshot>");
+            System.exit(1);
+        }
+
+        final DoubleArrayTrie trie = new DoubleArrayTrie(new File(args[0]));
+        final Path output = Paths.get(args[1]);
+        if (output.getParent() != null)
+            output.getParent().toFile().mkdirs();
+        write(trie, output);
+        System.out.println("Wrote " + trie.getNumberOfWords() + " words to " + output + '.');
+    }
+}
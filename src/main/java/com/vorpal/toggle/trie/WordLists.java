@@ -0,0 +1,89 @@
+// WordLists.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for turning raw word input into the form expected by the compiled (i.e. immutable) tries.
+ * The normalization here must match that done by LinkedTrie, so that all tries agree on what is a word.
+ */
+final class WordLists {
+    private WordLists() {}
+
+    /**
+     * Normalize a single word: diacritics are removed, and the word is converted to lowercase.
+     * @param word the word
+     * @return the normalized word
+     */
+    static String normalize(final String word) {
+        return DictionaryReader.normalize(word);
+    }
+
+    /**
+     * Normalize, sort, and remove duplicates and empty entries from a stream of words.
+     * @param words the stream of words
+     * @return the sorted list of distinct, normalized words
+     */
+    static List<String> sortedWords(final Stream<String> words) {
+        return words.map(WordLists::normalize)
+                .filter(w -> !w.isEmpty())
+                .sorted()
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Read, normalize, sort, and remove duplicates from a word list, with one word per line.
+     * @param is the input stream
+     * @return the sorted list of distinct, normalized words
+     * @throws UncheckedIOException if the stream cannot be read
+     */
+    static List<String> sortedWords(final InputStream is) {
+        final List<String> words = new ArrayList<>();
+        try {
+            DictionaryReader.read(is, (word, length) -> words.add(new String(word, 0, length)));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sortAndDeduplicate(words);
+    }
+
+    /**
+     * Read, normalize, sort, and remove duplicates from a word list file, with one word per line.
+     * @param path the file
+     * @return the sorted list of distinct, normalized words
+     * @throws IOException if the file cannot be read
+     */
+    static List<String> sortedWords(final Path path) throws IOException {
+        final List<String> words = new ArrayList<>();
+        DictionaryReader.read(path, (word, length) -> words.add(new String(word, 0, length)));
+        return sortAndDeduplicate(words);
+    }
+
+    /**
+     * Sort a list of words and remove duplicates in place.
+     * Dictionaries are usually already sorted, in which case this is linear.
+     * @param words the words
+     * @return the same list
+     */
+    private static List<String> sortAndDeduplicate(final List<String> words) {
+        Collections.sort(words);
+        int distinct = 0;
+        for (int i = 0; i < words.size(); ++i)
+            if (distinct == 0 || !words.get(i).equals(words.get(distinct - 1)))
+                words.set(distinct++, words.get(i));
+        words.subList(distinct, words.size()).clear();
+        return words;
+    }
+}
@@ -0,0 +1,253 @@
+// WordSpliterator.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.trie;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A lazy enumeration of the words of a trie in alphabetical order, optionally restricted to those with a prefix or in
+ * a range. The words are found one at a time by walking a cursor depth first, so the only objects created are the
+ * strings of the words themselves, and a caller that stops early does no further work.
+ *
+ * Before enumeration starts, the spliterator can be split between subtrees, e.g. the words beginning with a-m and
+ * those beginning with n-z, so that a parallel stream works on separate parts of the trie. Each part walks its own
+ * cursor, so the trie must not be modified while it is being enumerated.
+ */
+final class WordSpliterator implements Spliterator<String> {
+    // The next move of the walk.
+    private enum Move {
+        // Report the node if it is a word, and then descend into its children.
+        VISIT,
+        // Move to the first child of the node.
+        DESCEND,
+        // The subtree of the node is exhausted: move to its next sibling, or further up.
+        CLIMB,
+        // The enumeration is finished.
+        DONE
+    }
+
+    private final Trie trie;
+
+    // All the words enumerated begin with the prefix. The bounds are normalized: from is inclusive and begins with
+    // the prefix, to is exclusive, and either may be null for no bound.
+    private String prefix;
+    private String from;
+    private final String to;
+
+    // The number of words is not known, so as for Spliterators.AbstractSpliterator, the estimate is halved with each
+    // split, so that a parallel stream stops splitting once there are enough parts.
+    private long estimate = Long.MAX_VALUE;
+
+    // The walk, once it has started: the characters of the path to the cursor, and the next move.
+    private TrieCursor cursor;
+    private char[] path;
+    private int length;
+    private Move move;
+
+    /**
+     * @param trie the trie
+     * @param prefix the normalized prefix
+     * @param from the normalized inclusive lower bound, which begins with the prefix, or null
+     * @param to the normalized exclusive upper bound, or null
+     */
+    WordSpliterator(final Trie trie, final String prefix, final String from, final String to) {
+        this.trie = trie;
+        this.prefix = prefix;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super String> action) {
+        if (cursor == null)
+            start();
+        final String word = next();
+        if (word == null)
+            return false;
+        action.accept(word);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super String> action) {
+        if (cursor == null)
+            start();
+        for (String word = next(); word != null; word = next())
+            action.accept(word);
+    }
+
+    /**
+     * Position the cursor at the first node not less than the lower bound.
+     */
+    private void start() {
+        cursor = trie.cursor();
+        path = new char[Math.max(16, 2 * prefix.length())];
+        if (!cursor.step(prefix)) {
+            move = Move.DONE;
+            return;
+        }
+        prefix.getChars(0, prefix.length(), path, 0);
+        length = prefix.length();
+        move = Move.VISIT;
+
+        // Follow the lower bound as far as possible. Where it leaves the trie, the nodes before it are skipped by
+        // moving to the next child, if any, and otherwise by abandoning the subtree.
+        final String lower = from == null ? prefix : from;
+        for (int i = length; i < lower.length(); ++i) {
+            final char c = lower.charAt(i);
+            if (cursor.step(c)) {
+                push(c);
+                continue;
+            }
+            final char next = cursor.nextChild(c);
+            if (next != 0) {
+                cursor.step(next);
+                push(next);
+            } else
+                move = Move.CLIMB;
+            break;
+        }
+    }
+
+    /**
+     * Walk to the next word.
+     * @return the word, or null if there are no more
+     */
+    private String next() {
+        while (true) {
+            switch (move) {
+                case VISIT:
+                    // Nodes are visited in alphabetical order, so once past the upper bound, we are done.
+                    if (to != null && compareToPath(to) <= 0) {
+                        move = Move.DONE;
+                        return null;
+                    }
+                    move = Move.DESCEND;
+                    if (cursor.isWord())
+                        return new String(path, 0, length);
+                    break;
+
+                case DESCEND:
+                    final char first = cursor.hasChildren() ? cursor.nextChild((char) 0) : 0;
+                    if (first != 0) {
+                        cursor.step(first);
+                        push(first);
+                        move = Move.VISIT;
+                    } else
+                        move = Move.CLIMB;
+                    break;
+
+                case CLIMB:
+                    if (length == prefix.length()) {
+                        move = Move.DONE;
+                        return null;
+                    }
+                    final char last = path[--length];
+                    cursor.back();
+                    final char sibling = cursor.nextChild(last);
+                    if (sibling != 0) {
+                        cursor.step(sibling);
+                        push(sibling);
+                        move = Move.VISIT;
+                    }
+                    break;
+
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private void push(final char c) {
+        if (length == path.length)
+            path = Arrays.copyOf(path, 2 * length);
+        path[length++] = c;
+    }
+
+    /**
+     * Compare a string to the path, as String.compareTo would.
+     * @param s the string
+     * @return a negative number, zero, or a positive number as s is less than, equal to, or greater than the path
+     */
+    private int compareToPath(final String s) {
+        final int n = Math.min(s.length(), length);
+        for (int i = 0; i < n; ++i)
+            if (s.charAt(i) != path[i])
+                return s.charAt(i) - path[i];
+        return s.length() - length;
+    }
+
+    /**
+     * Split off the first half of the children of the prefix, descending while it has only one, so that each part
+     * enumerates whole subtrees. Only an enumeration that has not started can be split.
+     * @return the spliterator for the first half, or null if this cannot be split
+     */
+    @Override
+    public Spliterator<String> trySplit() {
+        if (cursor != null)
+            return null;
+
+        final TrieCursor probe = trie.cursor();
+        if (!probe.step(prefix))
+            return null;
+        final StringBuilder sb = new StringBuilder(prefix);
+        while (true) {
+            // Find the children of the prefix whose subtrees intersect the bounds.
+            final int depth = sb.length();
+            final char low = from != null && from.length() > depth ? from.charAt(depth) : 0;
+            final char[] children = new char[DoubleArrayTrie.ALPHABET_SIZE];
+            int count = 0;
+            for (char c = probe.nextChild((char) (low == 0 ? 0 : low - 1)); c != 0; c = probe.nextChild(c)) {
+                sb.append(c);
+                final boolean past = to != null && sb.toString().compareTo(to) >= 0;
+                sb.setLength(depth);
+                if (past)
+                    break;
+                children[count++] = c;
+            }
+
+            if (count >= 2) {
+                final int mid = count / 2;
+                final String split = sb.append(children[mid]).toString();
+                sb.setLength(depth);
+                final WordSpliterator firstHalf = new WordSpliterator(trie, prefix, from, split);
+                from = split;
+                estimate >>>= 1;
+                firstHalf.estimate = estimate;
+                return firstHalf;
+            }
+
+            // If the prefix is a word in range, it must be reported first, so this part cannot be divided further.
+            if (count == 0 || (probe.isWord() && (from == null || from.length() == depth)))
+                return null;
+
+            // Otherwise, all the words lie below the only child, so descend to it.
+            probe.step(children[0]);
+            sb.append(children[0]);
+            prefix = sb.toString();
+            if (from != null && !from.startsWith(prefix))
+                from = null;
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return move == Move.DONE ? 0 : estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | NONNULL;
+    }
+
+    @Override
+    public Comparator<? super String> getComparator() {
+        // The words are in their natural order.
+        return null;
+    }
+}
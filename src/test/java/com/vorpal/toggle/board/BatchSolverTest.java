@@ -0,0 +1,145 @@
+// BatchSolverTest.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.dice.DiceSet;
+import com.vorpal.toggle.trie.DoubleArrayTrie;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.toggle.trie.TrieCursor;
+import com.vorpal.utils.BigMath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class BatchSolverTest {
+    private static DoubleArrayTrie trie;
+
+    @BeforeAll
+    static void setUp() {
+        trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+    }
+
+    private static BoardSpec spec(final long i) {
+        final DiceSet diceSet = i % 3 == 0 ? DefaultDiceSets.DEFAULT_25_DICE_SET : DefaultDiceSets.DEFAULT_16_DICE_SET;
+        final BoardType boardType = BoardType.values()[(int) (i % BoardType.values().length)];
+        return new BoardSpec(boardType, diceSet, 7919 * i, 104729 * i);
+    }
+
+    private static Stream<BoardSpec> specs(final int n) {
+        return LongStream.range(0, n).mapToObj(BatchSolverTest::spec);
+    }
+
+    @Test
+    void orderedResultsMatchBoards() throws InterruptedException {
+        try (final BatchSolver solver = new BatchSolver(trie, 3, 3, 8)) {
+            final List<BatchSolver.Result> results = new ArrayList<>();
+            final BatchSolver.Statistics statistics = solver.solve(specs(200), true, results::add);
+            assertEquals(200, statistics.getBoards());
+            assertTrue(statistics.boardsPerSecond() > 0);
+            assertEquals(200, results.size());
+            for (int i = 0; i < results.size(); ++i) {
+                assertEquals(i, results.get(i).getIndex());
+                assertEquals(spec(i), results.get(i).getSpec());
+                assertEquals(words(spec(i)), results.get(i).getSolution().getWords());
+            }
+        }
+    }
+
+    /**
+     * Find the words of a board by creating it with the dictionary.
+     */
+    private static List<String> words(final BoardSpec spec) {
+        final int n = spec.getDiceSet().getNumberOfDice();
+        return new Board(spec.getBoardType(), spec.getDiceSet(),
+                BigMath.unrankPermutationAsList(n, spec.getPermutationRank()),
+                BigMath.unrankDiceFacesAsList(n, spec.getFaceRank()),
+                trie, 3).getWords();
+    }
+
+    @Test
+    void unorderedResultsCoverEveryBoard() throws InterruptedException {
+        try (final BatchSolver solver = new BatchSolver(trie, 3, 4, 5)) {
+            final Map<Long, Integer> counts = new HashMap<>();
+            solver.solve(specs(300), false, r -> counts.merge(r.getIndex(), r.getSolution().getNumberOfWords(),
+                    (a, b) -> -1));
+            assertEquals(300, counts.size());
+            assertFalse(counts.containsValue(-1));
+            assertEquals(words(spec(17)).size(), (int) counts.get(17L));
+        }
+    }
+
+    @Test
+    void unboundedInputIsReadOnlyAsFastAsItIsConsumed() {
+        final int inFlight = 6;
+        try (final BatchSolver solver = new BatchSolver(trie, 3, 2, inFlight)) {
+            final AtomicLong read = new AtomicLong();
+            final AtomicInteger consumed = new AtomicInteger();
+            final AtomicLong maximumAhead = new AtomicLong();
+            final Stream<BoardSpec> unbounded = Stream.iterate(0L, i -> i + 1)
+                    .peek(i -> maximumAhead.accumulateAndGet(read.incrementAndGet() - consumed.get(), Math::max))
+                    .map(BatchSolverTest::spec);
+
+            // The consumer stops the batch by failing.
+            final IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> solver.solve(unbounded, true, r -> {
+                        if (consumed.incrementAndGet() == 500)
+                            throw new IllegalStateException("enough");
+                    }));
+            assertEquals("enough", e.getMessage());
+            assertEquals(500, consumed.get());
+            assertTrue(maximumAhead.get() <= inFlight + 1, "read ahead " + maximumAhead.get());
+            assertTrue(read.get() <= 500 + inFlight + 1);
+        }
+    }
+
+    @Test
+    void failuresAbandonTheBatch() {
+        // A dictionary that cannot be read, so that solving any board fails.
+        final Trie broken = new Trie() {
+            @Override
+            public boolean isPrefix(final String s) {
+                return false;
+            }
+
+            @Override
+            public boolean isWord(final String s) {
+                return false;
+            }
+
+            @Override
+            public void dump(final Consumer<String> consumer) {
+            }
+
+            @Override
+            public TrieCursor cursor() {
+                throw new UnsupportedOperationException("broken");
+            }
+        };
+        try (final BatchSolver solver = new BatchSolver(broken, 3, 2, 4)) {
+            final List<BatchSolver.Result> results = new ArrayList<>();
+            assertThrows(UnsupportedOperationException.class, () -> solver.solve(specs(100), true, results::add));
+            assertTrue(results.isEmpty());
+        }
+    }
+
+    @Test
+    void specsAreChecked() {
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> new BoardSpec(BoardType.GRID, DefaultDiceSets.DEFAULT_16_DICE_SET, -1, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> new BoardSpec(BoardType.GRID,
+                DefaultDiceSets.DEFAULT_16_DICE_SET, BigInteger.ZERO, BigInteger.valueOf(6).pow(16)));
+        assertEquals(spec(5).toBoard(), spec(5).toBoard());
+    }
+}
@@ -0,0 +1,197 @@
+// BoardSolverTest.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.dice.DiceSet;
+import com.vorpal.toggle.trie.DoubleArrayTrie;
+import com.vorpal.toggle.trie.LinkedTrie;
+import com.vorpal.toggle.trie.SymbolTrie;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.utils.BigMath;
+import com.vorpal.utils.Coordinates;
+import com.vorpal.utils.Dimensions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class BoardSolverTest {
+    private static DoubleArrayTrie trie;
+    private static LinkedTrie linkedTrie;
+
+    @BeforeAll
+    static void setUp() {
+        trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        linkedTrie = new LinkedTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+    }
+
+    private static Board board(final BoardType boardType, final DiceSet diceSet, final long rank, final Trie trie) {
+        final int n = diceSet.getNumberOfDice();
+        return new Board(boardType, diceSet,
+                BigMath.unrankPermutationAsList(n, BigInteger.valueOf(rank)),
+                BigMath.unrankDiceFacesAsList(n, BigInteger.valueOf(rank * 7919)),
+                trie, 3);
+    }
+
+    /**
+     * Find the words of a board the straightforward way, by extending strings over the adjacencies of coordinates
+     * and checking each one against the dictionary.
+     */
+    private static List<String> expectedWords(final Board board, final Trie trie) {
+        final Set<String> words = new HashSet<>();
+        for (int x = 0; x < board.getSize().first; ++x)
+            for (int y = 0; y < board.getSize().second; ++y) {
+                final Coordinates c = new Coordinates(x, y);
+                final Set<Coordinates> visited = new HashSet<>();
+                visited.add(c);
+                search(board, trie, c, board.getValueAt(c), visited, words);
+            }
+        return words.stream()
+                .sorted(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()))
+                .collect(Collectors.toList());
+    }
+
+    private static void search(final Board board, final Trie trie, final Coordinates c, final String word,
+                               final Set<Coordinates> visited, final Set<String> words) {
+        if (word.length() >= 3 && trie.isWord(word))
+            words.add(word);
+        for (final Coordinates n: board.getAdjacencies(c)) {
+            final String extended = word + board.getValueAt(n);
+            if (visited.contains(n) || !trie.isPrefix(extended))
+                continue;
+            visited.add(n);
+            search(board, trie, n, extended, visited, words);
+            visited.remove(n);
+        }
+    }
+
+    @Test
+    void wordsMatchStraightforwardSearch() {
+        for (final BoardType boardType: BoardType.values())
+            for (final DiceSet diceSet: Arrays.asList(DefaultDiceSets.DEFAULT_16_DICE_SET,
+                    DefaultDiceSets.DEFAULT_25_DICE_SET))
+                for (final long rank: new long[] {0, 123456789, 987654321}) {
+                    final Board board = board(boardType, diceSet, rank, trie);
+                    final List<String> expected = expectedWords(board, trie);
+                    assertEquals(expected, board.getWords(), boardType + " " + rank);
+                    assertEquals(expected, board(boardType, diceSet, rank, linkedTrie).getWords());
+                }
+    }
+
+    @Test
+    void solverCanBeSharedBetweenThreads() {
+        final DiceSet diceSet = DefaultDiceSets.DEFAULT_16_DICE_SET;
+        final SymbolTrie symbolTrie = SymbolTrie.of(trie, diceSet.getAlphabet());
+        final BoardSolver solver = new BoardSolver(symbolTrie, 3);
+        final AdjacencyTable table = BoardType.GRID.adjacencyTable(new Dimensions(4, 4));
+
+        final List<BitSet> sequential = LongStream.range(0, 200).mapToObj(r -> solve(solver, table, diceSet, r))
+                .collect(Collectors.toList());
+        final List<BitSet> parallel = LongStream.range(0, 200).parallel()
+                .mapToObj(r -> solve(solver, table, diceSet, r)).collect(Collectors.toList());
+        assertEquals(sequential, parallel);
+
+        for (long r = 0; r < 200; r += 37)
+            assertEquals(board(BoardType.GRID, diceSet, r, trie).getWordIds(), sequential.get((int) r));
+    }
+
+    private static BitSet solve(final BoardSolver solver, final AdjacencyTable table, final DiceSet diceSet,
+                                final long rank) {
+        final Board board = board(BoardType.GRID, diceSet, rank, trie);
+        final int[] symbols = new int[table.size()];
+        final char[][] faces = new char[table.size()][];
+        for (int cell = 0; cell < table.size(); ++cell) {
+            symbols[cell] = board.getSymbolAt(table.x(cell), table.y(cell));
+            faces[cell] = board.getValueAt(table.x(cell), table.y(cell)).toCharArray();
+        }
+        return solver.solve(table, symbols, faces).getWordIds();
+    }
+
+    @Test
+    void mismatchedBoardsAreRejected() {
+        final SymbolTrie symbolTrie = SymbolTrie.of(trie, DefaultDiceSets.DEFAULT_16_DICE_SET.getAlphabet());
+        final BoardSolver solver = new BoardSolver(symbolTrie, 3);
+        final AdjacencyTable table = BoardType.GRID.adjacencyTable(new Dimensions(9, 9));
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(table, new int[3], new char[3][]));
+    }
+
+    /**
+     * A 7x7 dice set, made by reusing the dice of the 5x5 set.
+     */
+    private static DiceSet largeDiceSet() {
+        return DiceSet.generate("7x7", 7, 7, DefaultDiceSets.DEFAULT_25_DICE_SET);
+    }
+
+    @Test
+    void rectangularBoardsMatchStraightforwardSearch() {
+        for (final BoardType boardType: BoardType.values())
+            for (final int[] size: new int[][] {{3, 7}, {7, 3}, {4, 9}, {12, 6}}) {
+                final DiceSet diceSet = DiceSet.generate(size[0] + "x" + size[1], size[0], size[1],
+                        DefaultDiceSets.DEFAULT_16_DICE_SET);
+                final Board board = board(boardType, diceSet, 2718281828L, trie);
+                assertEquals(new Dimensions(size[0], size[1]), board.getSize());
+                assertEquals(expectedWords(board, trie), board.getWords(), boardType + " " + diceSet.getName());
+            }
+    }
+
+    @Test
+    void largestBoardsAreSolved() {
+        final DiceSet diceSet = DiceSet.generate("32x32", DiceSet.MAX_SIDE, DiceSet.MAX_SIDE,
+                DefaultDiceSets.DEFAULT_25_DICE_SET);
+        final SymbolTrie symbolTrie = SymbolTrie.of(trie, diceSet.getAlphabet());
+        final BoardSolver solver = new BoardSolver(symbolTrie, 3);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final BoardType boardType: new BoardType[] {BoardType.GRID, BoardType.PROJECTIVE_PLANE}) {
+                final Board board = board(boardType, diceSet, 1618033988L, trie);
+                final List<String> expected = expectedWords(board, trie);
+                assertEquals(expected, board.getWords(), boardType.toString());
+                assertEquals(expected, solver.solveParallel(board, pool).getWords());
+                assertTrue(expected.stream().allMatch(w -> board.canSpell(w).isPresent()));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelSolveMatchesSequential() {
+        // Scoring words by their lengths checks that words found from several starting cells are scored once.
+        final List<String> words = new ArrayList<>();
+        trie.dump(words::add);
+        final DoubleArrayTrie scored = new DoubleArrayTrie(words.stream(), String::length);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final DiceSet diceSet: Arrays.asList(DefaultDiceSets.DEFAULT_16_DICE_SET,
+                    DefaultDiceSets.DEFAULT_25_DICE_SET, largeDiceSet()))
+                for (final BoardType boardType: BoardType.values())
+                    for (final Trie dictionary: Arrays.asList(scored, linkedTrie)) {
+                        final Board board = board(boardType, diceSet, 31415926, dictionary);
+                        final SymbolTrie symbolTrie = SymbolTrie.of(dictionary, diceSet.getAlphabet());
+                        final BoardSolver solver = new BoardSolver(symbolTrie, 3);
+                        final BoardSolver.Solution parallel = solver.solveParallel(board, pool);
+                        assertEquals(board.getWords(), parallel.getWords(), boardType + " " + diceSet.getName());
+                        assertEquals(board.getWordIds(), parallel.getWordIds());
+                        assertEquals(board.getScore(), parallel.getScore());
+
+                        // Restricting the dictionary to the board first finds the same words.
+                        final BoardSolver.Solution restricted = solver.solveRestricted(board);
+                        assertEquals(board.getWords(), restricted.getWords());
+                        assertEquals(board.getScore(), restricted.getScore());
+                        if (dictionary == scored)
+                            assertEquals(board.getWords().stream().mapToInt(String::length).sum(), board.getScore());
+                    }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -4,5 +4,199 @@
 
 package com.vorpal.toggle.board;
 
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.dice.DiceSet;
+import com.vorpal.toggle.trie.DoubleArrayTrie;
+import com.vorpal.toggle.trie.LinkedTrie;
+import com.vorpal.toggle.trie.SymbolTrie;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.utils.BigMath;
+import com.vorpal.utils.Coordinates;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class BoardTest {
+    private static DoubleArrayTrie trie;
+    private static LinkedTrie linkedTrie;
+
+    @BeforeAll
+    static void setUp() {
+        trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        linkedTrie = new LinkedTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+    }
+
+    private static Board board(final BoardType boardType, final DiceSet diceSet, final long rank, final Trie trie) {
+        final int n = diceSet.getNumberOfDice();
+        return new Board(boardType, diceSet,
+                BigMath.unrankPermutationAsList(n, BigInteger.valueOf(rank)),
+                BigMath.unrankDiceFacesAsList(n, BigInteger.valueOf(rank * 7919)),
+                trie, 3);
+    }
+
+    @Test
+    void wordIdsMatchWords() {
+        for (final BoardType boardType: BoardType.values()) {
+            final Board board = board(boardType, DefaultDiceSets.DEFAULT_16_DICE_SET, 123456789, trie);
+            final BitSet ids = board.getWordIds();
+            assertNotNull(ids);
+            assertEquals(ids.cardinality(), board.getNumberOfWords());
+            assertEquals(board.getNumberOfWords(), board.getWords().size());
+            board.getWords().forEach(w -> assertTrue(ids.get(trie.getWordId(w))));
+
+            // A dictionary that does not index its words finds the same words, by string.
+            final Board unindexed = board(boardType, DefaultDiceSets.DEFAULT_16_DICE_SET, 123456789, linkedTrie);
+            assertNull(unindexed.getWordIds());
+            assertEquals(board.getWords(), unindexed.getWords());
+        }
+    }
+
+    @Test
+    void foundSetsCompareByBitwiseOperations() {
+        final Board board = board(BoardType.GRID, DefaultDiceSets.DEFAULT_16_DICE_SET, 987654321, trie);
+        assertTrue(board.getNumberOfWords() > 2);
+
+        // One player finds the first two words; the words that they missed are the rest.
+        final BitSet found = new BitSet();
+        found.set(trie.getWordId(board.getWords().get(0)));
+        found.set(trie.getWordId(board.getWords().get(1)));
+        final BitSet missed = board.getWordIds();
+        missed.andNot(found);
+        assertEquals(board.getNumberOfWords() - 2, missed.cardinality());
+
+        // The board's own set is not affected.
+        assertEquals(board.getNumberOfWords(), board.getWordIds().cardinality());
+    }
+
+    @Test
+    void boardsWithoutDictionariesAreSolvedSeparately() {
+        final DiceSet diceSet = DefaultDiceSets.DEFAULT_16_DICE_SET;
+        final Board board = new Board(BoardType.X_CYLINDER, diceSet,
+                BigMath.unrankPermutationAsList(16, BigInteger.valueOf(42)),
+                BigMath.unrankDiceFacesAsList(16, BigInteger.valueOf(42 * 7919)));
+        assertFalse(board.hasDictionary());
+        assertNull(board.getDictionary());
+        assertThrows(IllegalStateException.class, board::getWords);
+
+        // Boards are values, whatever their dictionaries.
+        final Board solved = board(BoardType.X_CYLINDER, diceSet, 42, trie);
+        assertEquals(solved, board);
+        assertEquals(solved.hashCode(), board.hashCode());
+        assertNotEquals(board(BoardType.GRID, diceSet, 42, trie), board);
+
+        // A solver can find the words of the board in any dictionary.
+        final BoardSolver.Solution solution = new BoardSolver(SymbolTrie.of(trie, diceSet.getAlphabet()), 3)
+                .solve(board);
+        assertEquals(solved.getWords(), solution.getWords());
+        assertEquals(solved.getWordIds(), solution.getWordIds());
+        assertSame(trie, solution.getDictionary());
+        final BoardSolver.Solution longer = new BoardSolver(SymbolTrie.of(linkedTrie, diceSet.getAlphabet()), 5)
+                .solve(board);
+        assertNull(longer.getWordIds());
+        assertTrue(longer.getWords().stream().allMatch(w -> w.length() >= 5));
+        assertEquals(solved.getWords().stream().filter(w -> w.length() >= 5).count(), longer.getNumberOfWords());
+    }
+
+    @Test
+    void wordsAreFoundOnceWhenRequested() {
+        final Board board = board(BoardType.TORUS, DefaultDiceSets.DEFAULT_16_DICE_SET, 2718281828L, trie);
+        assertTrue(board.hasDictionary());
+        assertSame(board.getWords(), board.getWords());
+        assertEquals(board.getNumberOfWords(), board.getWords().size());
+    }
+
+    @Test
+    void canSpellExactlyTheWordsFound() {
+        final List<String> sample = new ArrayList<>();
+        trie.dump(sample::add);
+        for (final BoardType boardType: BoardType.values())
+            for (final DiceSet diceSet: Arrays.asList(DefaultDiceSets.DEFAULT_16_DICE_SET,
+                    DefaultDiceSets.DEFAULT_25_DICE_SET)) {
+                final Board board = board(boardType, diceSet, 161803398, trie);
+                final Set<String> found = new HashSet<>(board.getWords());
+                for (final String word: board.getWords()) {
+                    final List<Coordinates> path = board.canSpell(word).orElseThrow(AssertionError::new);
+
+                    // The path spells the word, over adjacent dice, each used once.
+                    assertEquals(word, path.stream().map(board::getValueAt).collect(Collectors.joining()));
+                    assertEquals(path.size(), new HashSet<>(path).size());
+                    for (int i = 1; i < path.size(); ++i)
+                        assertTrue(board.getAdjacencies(path.get(i - 1)).contains(path.get(i)));
+                }
+
+                // The dictionary words that the board can spell are exactly those that it found.
+                for (int i = 0; i < sample.size(); i += 97) {
+                    final String word = sample.get(i);
+                    if (word.length() >= 3)
+                        assertEquals(found.contains(word.toUpperCase()), board.canSpell(word).isPresent(), word);
+                }
+            }
+    }
+
+    @Test
+    void canSpellOnUnsolvedBoards() {
+        // Place the dice in order, showing their first faces, except for QU on die 2 in (0, 2), I on die 1 in (0, 1),
+        // and T on die 0 in (0, 0). No other die shows I or T, or QU.
+        final DiceSet diceSet = DefaultDiceSets.DEFAULT_16_DICE_SET;
+        final List<Integer> permutation = new ArrayList<>();
+        final List<Integer> sides = new ArrayList<>();
+        for (int i = 0; i < 16; ++i) {
+            permutation.add(i);
+            sides.add(0);
+        }
+        sides.set(0, 5);
+        sides.set(1, 2);
+        sides.set(2, 5);
+        final Board board = new Board(BoardType.GRID, diceSet, permutation, sides);
+        assertFalse(board.hasDictionary());
+        assertEquals("QU", board.getValueAt(0, 2));
+        assertEquals("I", board.getValueAt(0, 1));
+        assertEquals("T", board.getValueAt(0, 0));
+
+        // The face must be matched in full, and in either case.
+        final List<Coordinates> quit = Arrays.asList(new Coordinates(0, 2), new Coordinates(0, 1),
+                new Coordinates(0, 0));
+        assertEquals(quit, board.canSpell("quit").orElseThrow(AssertionError::new));
+        assertEquals(quit, board.canSpell("QuIt").orElseThrow(AssertionError::new));
+        final List<Coordinates> tiqu = new ArrayList<>(quit);
+        Collections.reverse(tiqu);
+        assertEquals(tiqu, board.canSpell("TIQU").orElseThrow(AssertionError::new));
+        assertFalse(board.canSpell("").isPresent());
+        assertFalse(board.canSpell("Q").isPresent());
+        assertFalse(board.canSpell("QIT").isPresent());
+        assertFalse(board.canSpell("TIQ").isPresent());
+
+        // Each die is used at most once.
+        assertFalse(board.canSpell("QUITI").isPresent());
+    }
+
+    @Test
+    void rectangularBoardsArePositionedByWidthAndHeight() {
+        final DiceSet diceSet = DiceSet.generate("3x8", 3, 8, DefaultDiceSets.DEFAULT_16_DICE_SET);
+        assertEquals(24, diceSet.getNumberOfDice());
+        assertFalse(diceSet.isSquare());
+        assertThrows(IllegalStateException.class, diceSet::getSide);
+        assertThrows(IllegalArgumentException.class,
+                () -> DiceSet.generate("2x8", 2, 8, DefaultDiceSets.DEFAULT_16_DICE_SET));
+        assertThrows(IllegalArgumentException.class, () -> DiceSet.generate("3x33", 3, DiceSet.MAX_SIDE + 1,
+                DefaultDiceSets.DEFAULT_16_DICE_SET));
+
+        final Board board = board(BoardType.TORUS, diceSet, 42, trie);
+        final List<Integer> permutation = BigMath.unrankPermutationAsList(24, BigInteger.valueOf(42));
+        final List<Integer> sides = BigMath.unrankDiceFacesAsList(24, BigInteger.valueOf(42 * 7919));
+        for (int x = 0; x < 3; ++x)
+            for (int y = 0; y < 8; ++y) {
+                final int index = x * 8 + y;
+                assertEquals(diceSet.getDie(permutation.get(index)).getChar(sides.get(index)), board.getValueAt(x, y));
+                assertEquals(8, board.getAdjacencies(x, y).size());
+            }
+        assertThrows(IllegalArgumentException.class, () -> board.getValueAt(3, 0));
+        assertEquals(board.getValueAt(2, 7), board.getOutOfBoundsValueAt(-1, -1));
+        board.getWords().forEach(w -> assertTrue(board.canSpell(w).isPresent(), w));
+    }
 }
@@ -4,11 +4,15 @@
 
 package com.vorpal.toggle.board;
 
+import com.vorpal.utils.BigMath;
 import com.vorpal.utils.Coordinates;
+import com.vorpal.utils.Dimensions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -239,4 +243,143 @@ class BoardTypeTest {
                 if (x ==  4 && y ==  4) check(c, 3, 3);
             }
     }
+
+    @Test
+    @DisplayName("Test adjacency tables")
+    void testAdjacencyTables() {
+        for (final BoardType boardType: BoardType.values())
+            for (int side = 3; side <= 6; ++side) {
+                final Dimensions d = new Dimensions(side, side);
+                final AdjacencyTable table = boardType.adjacencyTable(d);
+                assertSame(table, boardType.adjacencyTable(new Dimensions(side, side)));
+                assertEquals(side * side, table.size());
+
+                for (int x = 0; x < side; ++x)
+                    for (int y = 0; y < side; ++y) {
+                        final int cell = table.index(x, y);
+                        assertEquals(BigMath.pairToIndex(side, x, y), cell);
+                        assertEquals(x, table.x(cell));
+                        assertEquals(y, table.y(cell));
+
+                        final Set<Coordinates> expected = boardType.adjacencies(d, new Coordinates(x, y));
+                        final Set<Coordinates> actual = new HashSet<>();
+                        int previous = -1;
+                        for (int j = table.start(cell); j < table.end(cell); ++j) {
+                            final int neighbour = table.target(j);
+                            assertTrue(neighbour > previous);
+                            previous = neighbour;
+                            actual.add(new Coordinates(table.x(neighbour), table.y(neighbour)));
+                        }
+                        assertEquals(expected, actual, boardType + " " + side + " " + x + " " + y);
+                        assertEquals(expected.size(), table.degree(cell));
+                        assertEquals(expected.size(), table.neighbours(cell).length);
+                    }
+            }
+    }
+
+    @Test
+    @DisplayName("Test rectangular boards")
+    void testRectangularBoards() {
+        // Wrapping an edge of a 5x3 board: x runs from 0 to 4 and y from 0 to 2.
+        check(BoardType.Y_CYLINDER.convert(5, 3, 4, -1), 4, 2);
+        check(BoardType.Y_MOBIUS_STRIP.convert(5, 3, 4, 3), 0, 0);
+        check(BoardType.X_MOBIUS_STRIP.convert(5, 3, 5, 0), 0, 2);
+        check(BoardType.PROJECTIVE_PLANE.convert(5, 3, 5, -1), 4, 0);
+        check(BoardType.TORUS.convert(5, 3, -1, 3), 4, 0);
+        assertFalse(BoardType.X_CYLINDER.convert(5, 3, 2, 3).isPresent());
+
+        for (final BoardType boardType: BoardType.values())
+            for (final int[] size: new int[][] {{3, 5}, {5, 3}, {4, 7}, {7, 4}, {32, 3}}) {
+                final int w = size[0];
+                final int h = size[1];
+                final Dimensions d = new Dimensions(w, h);
+                final AdjacencyTable table = boardType.adjacencyTable(d);
+                assertEquals(w, table.getWidth());
+                assertEquals(h, table.getHeight());
+                assertEquals(w * h, table.size());
+
+                for (int x = 0; x < w; ++x)
+                    for (int y = 0; y < h; ++y) {
+                        final Coordinates c = new Coordinates(x, y);
+                        final Set<Coordinates> nbrs = boardType.adjacencies(d, c);
+                        final String where = boardType + " " + w + "x" + h + " " + c;
+
+                        // A cell has a neighbour across each edge of the board that wraps, and otherwise one
+                        // fewer row or column of neighbours. The corners of boards wrapping both ways are glued to
+                        // each other, so some of their neighbours coincide, and are not counted here.
+                        final boolean xEdge = x == 0 || x == w - 1;
+                        final boolean yEdge = y == 0 || y == h - 1;
+                        final boolean xWraps = boardType.getXAxisAlignment() != AxisAlignment.NONE;
+                        final boolean yWraps = boardType.getYAxisAlignment() != AxisAlignment.NONE;
+                        final int columns = xEdge && !xWraps ? 2 : 3;
+                        final int rows = yEdge && !yWraps ? 2 : 3;
+                        if (!(xEdge && yEdge && xWraps && yWraps))
+                            assertEquals(columns * rows - 1, nbrs.size(), where);
+
+                        // Adjacency is symmetric, and the table agrees.
+                        for (final Coordinates n: nbrs) {
+                            assertTrue(n.first >= 0 && n.first < w && n.second >= 0 && n.second < h, where);
+                            assertTrue(boardType.adjacencies(d, n).contains(c), where + " " + n);
+                        }
+                        assertEquals(nbrs.size(), table.degree(table.index(x, y)));
+                    }
+            }
+    }
+
+    @Test
+    @DisplayName("Test symmetry groups")
+    void testSymmetryGroups() {
+        // Symmetries of a square: 8, of a rectangle: 4, and on a torus, also every translation.
+        assertEquals(8, BoardType.GRID.symmetryGroup(new Dimensions(4, 4)).size());
+        assertEquals(4, BoardType.GRID.symmetryGroup(new Dimensions(3, 5)).size());
+        assertEquals(3 * 4, BoardType.X_CYLINDER.symmetryGroup(new Dimensions(3, 5)).size());
+        assertEquals(5 * 5 * 8, BoardType.TORUS.symmetryGroup(new Dimensions(5, 5)).size());
+        assertEquals(4 * 6 * 4, BoardType.TORUS.symmetryGroup(new Dimensions(4, 6)).size());
+
+        // Every two cells of a 3x3 Klein bottle are adjacent, so its boards are left as they are.
+        assertEquals(1, BoardType.X_KLEIN_BOTTLE.symmetryGroup(new Dimensions(3, 3)).size());
+
+        for (final BoardType boardType: BoardType.values())
+            for (final int[] size: new int[][] {{3, 3}, {4, 4}, {5, 5}, {3, 5}, {6, 4}, {7, 5}, {6, 6}}) {
+                final Dimensions d = new Dimensions(size[0], size[1]);
+                final SymmetryGroup group = boardType.symmetryGroup(d);
+                final AdjacencyTable table = boardType.adjacencyTable(d);
+                assertSame(group, boardType.symmetryGroup(new Dimensions(size[0], size[1])));
+                final String where = boardType + " " + size[0] + "x" + size[1];
+
+                // Each symmetry is a distinct permutation preserving adjacency, with the identity first.
+                final Set<List<Integer>> permutations = new HashSet<>();
+                for (int s = 0; s < group.size(); ++s) {
+                    final List<Integer> permutation = new ArrayList<>();
+                    for (int cell = 0; cell < table.size(); ++cell) {
+                        permutation.add(group.image(s, cell));
+                        for (final int n: table.neighbours(cell))
+                            assertTrue(Arrays.binarySearch(table.neighbours(group.image(s, cell)),
+                                    group.image(s, n)) >= 0, where);
+                    }
+                    assertTrue(BigMath.isPermutation(permutation), where);
+                    assertTrue(permutations.add(permutation), where);
+                    if (s == 0)
+                        assertEquals(IntStream.range(0, table.size()).boxed().collect(Collectors.toList()), permutation);
+                }
+
+                // The symmetries form a group, so that every board in an orbit has the same canonical form. Some
+                // small boards have thousands of accidental symmetries, which are not all composed here.
+                if (group.size() <= 512)
+                    for (final List<Integer> p: permutations)
+                        for (final List<Integer> q: permutations)
+                            assertTrue(permutations.contains(q.stream().map(p::get).collect(Collectors.toList())),
+                                    where);
+
+                final Random random = new Random(size[0] * 31 + size[1]);
+                final int[] values = random.ints(table.size(), 0, 3).toArray();
+                final int[] canonical = group.canonicalize(values);
+                for (int s = 0; s < group.size(); ++s) {
+                    final int[] rearranged = new int[values.length];
+                    for (int cell = 0; cell < values.length; ++cell)
+                        rearranged[cell] = values[group.image(s, cell)];
+                    assertArrayEquals(canonical, boardType.canonicalize(d, rearranged), where);
+                }
+            }
+    }
 }
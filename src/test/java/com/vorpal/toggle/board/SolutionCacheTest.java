@@ -0,0 +1,108 @@
+// SolutionCacheTest.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.board;
+
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.dice.DiceSet;
+import com.vorpal.toggle.trie.DoubleArrayTrie;
+import com.vorpal.toggle.trie.SymbolTrie;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.utils.BigMath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SolutionCacheTest {
+    private static DoubleArrayTrie trie;
+
+    @BeforeAll
+    static void setUp() {
+        trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+    }
+
+    /**
+     * Create a board whose die in each cell (x, y) is the die of the board of the given rank in cell (f(x), g(y)),
+     * where f and g translate and optionally reflect the axes.
+     */
+    private static Board board(final BoardType boardType, final DiceSet diceSet, final long rank,
+                               final int dx, final int dy, final boolean flipX, final boolean flipY) {
+        final int w = diceSet.getWidth();
+        final int h = diceSet.getHeight();
+        final List<Integer> permutation = BigMath.unrankPermutationAsList(w * h, BigInteger.valueOf(rank));
+        final List<Integer> sides = BigMath.unrankDiceFacesAsList(w * h, BigInteger.valueOf(rank * 7919));
+        final List<Integer> movedPermutation = new ArrayList<>();
+        final List<Integer> movedSides = new ArrayList<>();
+        for (int x = 0; x < w; ++x)
+            for (int y = 0; y < h; ++y) {
+                final int fx = (flipX ? w - 1 - x + dx : x + dx) % w;
+                final int fy = (flipY ? h - 1 - y + dy : y + dy) % h;
+                movedPermutation.add(permutation.get(fx * h + fy));
+                movedSides.add(sides.get(fx * h + fy));
+            }
+        return new Board(boardType, diceSet, movedPermutation, movedSides, trie, 3);
+    }
+
+    @Test
+    void symmetricBoardsShareSolutions() {
+        final DiceSet diceSet = DiceSet.generate("5x4", 5, 4, DefaultDiceSets.DEFAULT_25_DICE_SET);
+        final SolutionCache cache = new SolutionCache(
+                new BoardSolver(SymbolTrie.of(trie, diceSet.getAlphabet()), 3), 100);
+
+        // Every translation and reflection of a board on a torus has the same words, and is solved once.
+        for (int dx = 0; dx < 5; ++dx)
+            for (int dy = 0; dy < 4; ++dy)
+                for (final boolean flip: new boolean[] {false, true}) {
+                    final Board board = board(BoardType.TORUS, diceSet, 8675309, dx, dy, flip, !flip);
+                    assertEquals(board.getWords(), cache.solve(board).getWords());
+                }
+        assertEquals(1, cache.getMisses());
+        assertEquals(39, cache.getHits());
+        assertEquals(1, cache.size());
+
+        // On a grid, reflections are symmetries, but translations are not.
+        final Board grid = board(BoardType.GRID, diceSet, 8675309, 0, 0, false, false);
+        assertEquals(grid.getWords(), cache.solve(grid).getWords());
+        final Board reflected = board(BoardType.GRID, diceSet, 8675309, 0, 0, true, true);
+        assertSame(cache.solve(grid), cache.solve(reflected));
+        assertEquals(reflected.getWords(), cache.solve(reflected).getWords());
+        final Board translated = board(BoardType.GRID, diceSet, 8675309, 1, 0, false, false);
+        assertEquals(translated.getWords(), cache.solve(translated).getWords());
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedSolutionsAreEvicted() {
+        final DiceSet diceSet = DefaultDiceSets.DEFAULT_16_DICE_SET;
+        final SolutionCache cache = new SolutionCache(
+                new BoardSolver(SymbolTrie.of(trie, diceSet.getAlphabet()), 3), 2);
+        final Board first = board(BoardType.X_CYLINDER, diceSet, 1, 0, 0, false, false);
+        final Board second = board(BoardType.X_CYLINDER, diceSet, 2, 0, 0, false, false);
+        final Board third = board(BoardType.X_CYLINDER, diceSet, 3, 0, 0, false, false);
+        cache.solve(first);
+        cache.solve(second);
+        cache.solve(board(BoardType.X_CYLINDER, diceSet, 1, 2, 0, true, false));
+        cache.solve(third);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+
+        // The second board was the least recently used, so it was evicted.
+        cache.solve(first);
+        assertEquals(2, cache.getHits());
+        cache.solve(second);
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new SolutionCache(
+                new BoardSolver(SymbolTrie.of(trie, diceSet.getAlphabet()), 3), 0));
+    }
+}
@@ -0,0 +1,120 @@
+// GameSessionTest.java
+//
+// By Sebastian Raaphorst, 2018.
+
+package com.vorpal.toggle.game;
+
+import com.vorpal.toggle.board.Board;
+import com.vorpal.toggle.board.BoardType;
+import com.vorpal.toggle.dice.DefaultDiceSets;
+import com.vorpal.toggle.trie.DoubleArrayTrie;
+import com.vorpal.toggle.trie.LinkedTrie;
+import com.vorpal.toggle.trie.Trie;
+import com.vorpal.utils.BigMath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class GameSessionTest {
+    private static DoubleArrayTrie trie;
+
+    @BeforeAll
+    static void setUp() {
+        trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+    }
+
+    private static Board board(final Trie dictionary) {
+        return new Board(BoardType.TORUS, DefaultDiceSets.DEFAULT_25_DICE_SET,
+                BigMath.unrankPermutationAsList(25, BigInteger.valueOf(577215664)),
+                BigMath.unrankDiceFacesAsList(25, BigInteger.valueOf(901532861)),
+                dictionary, 3);
+    }
+
+    @Test
+    void submissionsAreJudged() {
+        final GameSession session = new GameSession(board(trie));
+        final List<String> words = session.getBoard().getWords();
+        assertEquals(words.size(), session.getNumberOfWords());
+        final String word = words.get(words.size() - 1);
+
+        assertEquals(GameSession.Outcome.ACCEPTED, session.submit("alice", word.toLowerCase()));
+        assertEquals(GameSession.Outcome.ALREADY_FOUND, session.submit("alice", word));
+        assertEquals(GameSession.Outcome.NOT_ON_BOARD, session.submit("alice", "xyzzyq"));
+        assertEquals(GameSession.Outcome.NOT_ON_BOARD, session.submit("bob", "aa"));
+        assertEquals(new HashSet<>(Arrays.asList("alice", "bob")), session.getPlayers());
+
+        // The word is alice's alone, until bob finds it too.
+        assertEquals(Collections.singletonList(word), session.getUniqueWords("alice"));
+        assertEquals(GameSession.standardPoints(word), session.getScore("alice"));
+        assertEquals(GameSession.Outcome.ACCEPTED, session.submit("bob", word));
+        assertEquals(Collections.singletonList(word), session.getFoundWords("alice"));
+        assertEquals(Collections.emptyList(), session.getUniqueWords("alice"));
+        assertEquals(0, session.getScore("alice"));
+        assertEquals(0, session.getScore("carol"));
+        assertEquals(1, session.getNumberOfWordsFound());
+
+        assertThrows(IllegalArgumentException.class, () -> new GameSession(board(new LinkedTrie(
+                Trie.class.getResourceAsStream("/dictionary.txt")))));
+    }
+
+    @Test
+    void concurrentSubmissionsScoreUniqueWords() throws Exception {
+        final GameSession session = new GameSession(board(trie));
+        final List<String> words = session.getBoard().getWords();
+        final int players = 300;
+
+        // Player p tries the words i with (i + p) % 7 == 0 or i % 53 == p, twice each, along with a word not on the
+        // board, and each player's submissions are split between two tasks, so that they also race each other.
+        final Map<String, Set<String>> expected = new HashMap<>();
+        final List<Runnable> tasks = new ArrayList<>();
+        for (int p = 0; p < players; ++p) {
+            final String player = "player" + p;
+            final List<String> tries = new ArrayList<>();
+            for (int i = 0; i < words.size(); ++i)
+                if ((i + p) % 7 == 0 || i % 53 == p)
+                    tries.add(words.get(i));
+            expected.put(player, new HashSet<>(tries));
+            tries.addAll(new ArrayList<>(tries));
+            tries.add("QQQQ");
+            Collections.shuffle(tries, new Random(p));
+            final int half = tries.size() / 2;
+            tasks.add(() -> tries.subList(0, half).forEach(w -> session.submit(player, w)));
+            tasks.add(() -> tries.subList(half, tries.size()).forEach(w -> session.submit(player, w)));
+        }
+        Collections.shuffle(tasks, new Random(0));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            tasks.forEach(t -> futures.add(executor.submit(t)));
+            for (final Future<?> future: futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        // Compare against counting the finders of each word directly.
+        final Map<String, Long> finders = expected.values().stream().flatMap(Set::stream)
+                .collect(Collectors.groupingBy(w -> w, Collectors.counting()));
+        for (final Map.Entry<String, Set<String>> e: expected.entrySet()) {
+            final String player = e.getKey();
+            assertEquals(new HashSet<>(session.getFoundWords(player)), e.getValue());
+            final Set<String> unique = e.getValue().stream().filter(w -> finders.get(w) == 1)
+                    .collect(Collectors.toSet());
+            assertEquals(unique, new HashSet<>(session.getUniqueWords(player)), player);
+            assertEquals(unique.stream().mapToLong(GameSession::standardPoints).sum(), session.getScore(player));
+        }
+        assertEquals(finders.size(), session.getNumberOfWordsFound());
+        assertEquals(players, session.getScores().size());
+    }
+}
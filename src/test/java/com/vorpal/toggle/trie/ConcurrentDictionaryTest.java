@@ -0,0 +1,114 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ConcurrentDictionaryTest {
+    private static List<String> words(final Trie trie) {
+        final List<String> words = new ArrayList<>();
+        trie.dump(words::add);
+        return words;
+    }
+
+    // Spell out a number in letters, as words may only contain letters.
+    private static String letters(final int n) {
+        final StringBuilder sb = new StringBuilder();
+        for (final char c: Integer.toString(n).toCharArray())
+            sb.append((char) ('a' + c - '0'));
+        return sb.toString();
+    }
+
+    @Test
+    void updatesArePublishedAndSnapshotsAreUnchanged() {
+        final ConcurrentDictionary dictionary = new ConcurrentDictionary(Stream.of("cat", "dog", "emu"));
+        final Trie original = dictionary.snapshot();
+        assertEquals(0, dictionary.getVersion());
+
+        final Trie added = dictionary.addWords(Arrays.asList("Bée", "cat"));
+        assertSame(added, dictionary.snapshot());
+        assertEquals(1, dictionary.getVersion());
+        assertEquals(Arrays.asList("bee", "cat", "dog", "emu"), words(added));
+        assertEquals(Arrays.asList("cat", "dog", "emu"), words(original));
+
+        dictionary.removeWords(Arrays.asList("DOG", "yak"));
+        assertEquals(Arrays.asList("bee", "cat", "emu"), words(dictionary.snapshot()));
+        assertTrue(added.isWord("dog"));
+
+        dictionary.replace(Stream.of("gnu"));
+        assertEquals(Collections.singletonList("gnu"), words(dictionary.snapshot()));
+        assertEquals(3, dictionary.getVersion());
+    }
+
+    @Test
+    void readersSeeConsistentSnapshotsDuringUpdates() throws InterruptedException, ExecutionException {
+        final ConcurrentDictionary dictionary = new ConcurrentDictionary(Stream.of("a"));
+        final int writers = 4;
+        final int updates = 25;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        try {
+            // Each update adds a pair of words, so any snapshot must contain both or neither.
+            final List<Future<?>> writes = new ArrayList<>();
+            for (int w = 0; w < writers; ++w) {
+                final String prefix = "w" + (char) ('a' + w);
+                writes.add(executor.submit(() -> {
+                    for (int i = 0; i < updates; ++i)
+                        dictionary.addWords(Arrays.asList(prefix + "x" + letters(i), prefix + "y" + letters(i)));
+                }));
+            }
+
+            final List<Future<Integer>> reads = new ArrayList<>();
+            for (int r = 0; r < 2; ++r)
+                reads.add(executor.submit(() -> {
+                    int checked = 0;
+                    do {
+                        final Trie snapshot = dictionary.snapshot();
+                        final List<String> words = words(snapshot);
+                        for (final String word: words)
+                            if (word.length() > 2 && word.charAt(2) == 'x')
+                                assertTrue(snapshot.isWord(word.substring(0, 2) + 'y' + word.substring(3)));
+                        assertEquals(words.stream().filter(w -> w.length() > 2 && w.charAt(2) == 'x').count() * 2 + 1,
+                                words.size());
+                        ++checked;
+                    } while (!done.get());
+                    return checked;
+                }));
+
+            for (final Future<?> write: writes)
+                write.get();
+            done.set(true);
+            for (final Future<Integer> read: reads)
+                assertTrue(read.get() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // No update was lost.
+        assertEquals(writers * updates, dictionary.getVersion());
+        assertEquals(1 + 2 * writers * updates, words(dictionary.snapshot()).size());
+    }
+
+    @Test
+    void payloadsAreKeptAcrossUpdates() {
+        final ConcurrentDictionary dictionary = new ConcurrentDictionary(
+                new DoubleArrayTrie(Stream.of("cat", "dog"), String::length));
+        dictionary.addWords(Arrays.asList("Emu", "dog"), w -> 10);
+        final Trie updated = dictionary.removeWords(Collections.singletonList("cat"));
+        assertEquals(Arrays.asList("dog", "emu"), words(updated));
+        assertEquals(10, updated.getPayload("dog"));
+        assertEquals(10, updated.getPayload("emu"));
+
+        dictionary.addWords(Collections.singletonList("gnu"));
+        assertEquals(10, dictionary.snapshot().getPayload("emu"));
+        assertEquals(0, dictionary.snapshot().getPayload("gnu"));
+    }
+}
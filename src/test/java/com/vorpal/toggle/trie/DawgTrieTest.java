@@ -0,0 +1,70 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DawgTrieTest {
+    private static DawgTrie dawg;
+
+    @BeforeAll
+    static void setUp() {
+        final InputStream res = Trie.class.getResourceAsStream("/dictionary.txt");
+        dawg = new DawgTrie(res);
+    }
+
+    @Test
+    void findApple() {
+        assertTrue(dawg.isWord("apple"));
+        assertTrue(dawg.isWord("APPLES"));
+        assertTrue(dawg.isWord("applesauce"));
+        assertFalse(dawg.isWord("applesau"));
+    }
+
+    @Test
+    void testPrefix() {
+        final String applesauce = "applesauce";
+
+        for (int i = 0; i <= applesauce.length(); ++i)
+            assertTrue(dawg.isPrefix(applesauce.substring(0, i)));
+        assertFalse(dawg.isPrefix(applesauce + "a"));
+        assertFalse(dawg.isPrefix("xx"));
+    }
+
+    @Test
+    void dumpMatchesDoubleArrayTrie() {
+        final List<String> expected = new ArrayList<>();
+        new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt")).dump(expected::add);
+        final List<String> actual = new ArrayList<>();
+        dawg.dump(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void suffixesAreShared() {
+        // "-ing" and "-ed" endings are shared, so the DAWG has far fewer nodes than there are characters.
+        final DawgTrie small = new DawgTrie(Stream.of("walk", "walked", "walking", "talk", "talked", "talking"));
+        final DawgTrie.DawgStatistics stats = small.analyze();
+        assertEquals(6, stats.words);
+        assertEquals(7, stats.height);
+        assertEquals(9, stats.nodes);
+
+        // The full dictionary is minimized to a fraction of the trie size.
+        assertTrue(dawg.analyze().nodes < dawg.analyze().words);
+    }
+
+    @Test
+    void builderRejectsUnsortedInput() {
+        final DawgTrie.Builder builder = new DawgTrie.Builder();
+        builder.add("b");
+        assertThrows(IllegalArgumentException.class, () -> builder.add("a"));
+        builder.build();
+        assertThrows(IllegalStateException.class, () -> builder.add("c"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DictionaryReaderTest {
+    // The String-based normalization that the reader replaces.
+    private static String legacyNormalize(final String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]", "").toLowerCase();
+    }
+
+    private static List<String> legacyRead(final byte[] bytes) throws IOException {
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            return reader.lines().map(DictionaryReaderTest::legacyNormalize)
+                    .filter(w -> !w.isEmpty())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> read(final byte[] bytes, final int bufferSize) throws IOException {
+        final List<String> words = new ArrayList<>();
+        new DictionaryReader((w, l) -> words.add(new String(w, 0, l)), bufferSize)
+                .read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+        return words;
+    }
+
+    @Test
+    void dictionaryMatchesLegacyNormalization() throws IOException {
+        final List<String> expected = new ArrayList<>();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Trie.class.getResourceAsStream("/dictionary.txt"), StandardCharsets.UTF_8))) {
+            reader.lines().map(DictionaryReaderTest::legacyNormalize).filter(w -> !w.isEmpty()).forEach(expected::add);
+        }
+
+        final List<String> actual = new ArrayList<>();
+        DictionaryReader.read(Trie.class.getResourceAsStream("/dictionary.txt"),
+                (w, l) -> actual.add(new String(w, 0, l)));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void everyCodePointMatchesLegacyNormalization() {
+        for (int cp = 0; cp <= Character.MAX_CODE_POINT; ++cp) {
+            if (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)
+                continue;
+            final String s = new String(Character.toChars(cp));
+            assertEquals(legacyNormalize(s), DictionaryReader.normalize(s), () -> "code point " + s.codePointAt(0));
+        }
+    }
+
+    @Test
+    void mixedInputMatchesLegacyReader() throws IOException {
+        final String text = "﻿Café\r\nnaïve\nÅngström\r\rcrème brûlée\n\n日本語\nsmile😀y\r\nŒuvre\nﬁne";
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        final List<String> expected = legacyRead(bytes);
+
+        // Small buffers split multi-byte sequences across reads.
+        for (int bufferSize = 1; bufferSize <= 8; ++bufferSize)
+            assertEquals(expected, read(bytes, bufferSize));
+    }
+
+    @Test
+    void malformedInputIsDropped() throws IOException {
+        // A stray continuation byte, an overlong encoding of '/', and a truncated sequence at the end.
+        final byte[] bytes = {'a', (byte) 0x80, 'b', '\n', (byte) 0xc0, (byte) 0xaf, 'c', '\n', 'd', (byte) 0xe6};
+        assertEquals(Arrays.asList("ab", "c", "d"), read(bytes, 4));
+    }
+}
@@ -0,0 +1,98 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DictionaryRegistryTest {
+    @Test
+    void packsAreLoadedLazilyAndShared() {
+        final DictionaryRegistry registry = new DictionaryRegistry();
+        final AtomicInteger loads = new AtomicInteger();
+        registry.register("fr", () -> {
+            loads.incrementAndGet();
+            return new DoubleArrayTrie(Stream.of("chat", "chien"));
+        });
+        registry.register("de", () -> new DoubleArrayTrie(Stream.of("hund", "katze")));
+        assertEquals(0, loads.get());
+        assertFalse(registry.isResident("fr"));
+        assertEquals(Arrays.asList("de", "fr"), new ArrayList<>(registry.getNames()));
+
+        final Trie fr = registry.get("fr");
+        assertTrue(fr.isWord("chat"));
+        assertSame(fr, registry.get("fr"));
+        assertEquals(1, loads.get());
+        assertTrue(registry.isResident("fr"));
+        assertFalse(registry.isResident("de"));
+        assertTrue(registry.get("de").isWord("katze"));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.get("xx"));
+    }
+
+    @Test
+    void evictedPacksInUseAreReused() {
+        final DictionaryRegistry registry = new DictionaryRegistry();
+        final AtomicInteger loads = new AtomicInteger();
+        registry.register("en", () -> {
+            loads.incrementAndGet();
+            return new DoubleArrayTrie(Stream.of("cat"));
+        });
+
+        // A board still holds the trie, so requesting it again after eviction does not load a second copy.
+        final Trie inUse = registry.get("en");
+        assertTrue(registry.evict("en"));
+        assertFalse(registry.isResident("en"));
+        assertFalse(registry.evict("en"));
+        assertSame(inUse, registry.get("en"));
+        assertEquals(1, loads.get());
+
+        assertEquals(Collections.emptyList(), registry.evictUnused(Long.MAX_VALUE / 2));
+        assertEquals(Collections.singletonList("en"), registry.evictUnused(0));
+        assertFalse(registry.isResident("en"));
+    }
+
+    @Test
+    void defaultTrieIsShared() {
+        assertSame(Trie.createDefaultTrie(), Trie.createDefaultTrie());
+        assertTrue(DictionaryRegistry.getDefault().get(DictionaryRegistry.DEFAULT).isWord("apple"));
+    }
+
+    @Test
+    void onlyOutdatedSnapshotsFallBackToWordLists() throws IOException {
+        final Path words = Files.createTempFile("pack", ".txt");
+        words.toFile().deleteOnExit();
+        Files.write(words, Arrays.asList("cat", "dog"));
+        final Path snapshot = Files.createTempFile("pack", ".trie");
+        snapshot.toFile().deleteOnExit();
+        TrieSnapshot.write(new DoubleArrayTrie(Stream.of("emu")), snapshot);
+        final URL wordsUrl = words.toUri().toURL();
+        final URL snapshotUrl = snapshot.toUri().toURL();
+        assertTrue(DictionaryRegistry.load("pack", snapshotUrl, wordsUrl).isWord("emu"));
+
+        // A snapshot from another version of the format is skipped in favour of the word list.
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[7] = 99;
+        Files.write(snapshot, bytes);
+        assertTrue(DictionaryRegistry.load("pack", snapshotUrl, wordsUrl).isWord("dog"));
+        final UncheckedIOException missing = assertThrows(UncheckedIOException.class,
+                () -> DictionaryRegistry.load("pack", snapshotUrl, null));
+        assertTrue(missing.getCause().getSuppressed()[0] instanceof TrieSnapshot.UnsupportedVersionException);
+
+        // Any other invalid snapshot is an error, rather than silently compiling the word list.
+        bytes[7] = (byte) TrieSnapshot.VERSION;
+        bytes[0] = 0;
+        Files.write(snapshot, bytes);
+        assertThrows(UncheckedIOException.class, () -> DictionaryRegistry.load("pack", snapshotUrl, wordsUrl));
+    }
+}
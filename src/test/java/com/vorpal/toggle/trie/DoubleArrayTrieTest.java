@@ -0,0 +1,118 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DoubleArrayTrieTest {
+    private static DoubleArrayTrie trie;
+
+    @BeforeAll
+    static void setUp() {
+        final InputStream res = Trie.class.getResourceAsStream("/dictionary.txt");
+        trie = new DoubleArrayTrie(res);
+    }
+
+    @Test
+    void findApple() {
+        assertTrue(trie.isWord("apple"));
+        assertTrue(trie.isWord("apples"));
+        assertTrue(trie.isWord("applesauce"));
+    }
+
+    @Test
+    void doNotFindAppleSau() {
+        assertFalse(trie.isWord("applesau"));
+        assertFalse(trie.isWord(""));
+    }
+
+    @Test
+    void caseDoesntMatter() {
+        assertTrue(trie.isWord("APPLE"));
+        assertTrue(trie.isWord("Apple"));
+        assertTrue(trie.isWord("aPpLe"));
+    }
+
+    @Test
+    void testPrefix() {
+        final String applesauce = "applesauce";
+
+        for (int i = 0; i <= applesauce.length(); ++i)
+            assertTrue(trie.isPrefix(applesauce.substring(0, i)));
+        assertFalse(trie.isPrefix(applesauce + "a"));
+
+        assertFalse(trie.isPrefix("xx"));
+        assertFalse(trie.isPrefix("appletts"));
+        assertFalse(trie.isPrefix("café"));
+    }
+
+    @Test
+    void dumpIsSortedAndMatchesLinkedTrie() {
+        final List<String> words = new ArrayList<>();
+        trie.dump(words::add);
+        assertEquals(trie.getNumberOfWords(), words.size());
+        for (int i = 1; i < words.size(); ++i)
+            assertTrue(words.get(i - 1).compareTo(words.get(i)) < 0);
+
+        final LinkedTrie linkedTrie = new LinkedTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        words.forEach(w -> assertTrue(linkedTrie.isWord(w)));
+    }
+
+    @Test
+    void diacriticsAndDuplicates() {
+        final DoubleArrayTrie small = new DoubleArrayTrie(Stream.of("Café", "cafe", "CAFES", "a"));
+        assertEquals(3, small.getNumberOfWords());
+        assertTrue(small.isWord("cafe"));
+        assertTrue(small.isWord("a"));
+        assertTrue(small.isPrefix("cafe"));
+        assertFalse(small.isWord("caf"));
+    }
+
+    @Test
+    void payloadsAreStoredWithWords() {
+        final DoubleArrayTrie scored = new DoubleArrayTrie(Stream.of("cat", "Cats", "ca", "dog"), String::length);
+        assertTrue(scored.hasPayloads());
+        assertEquals(3, scored.getPayload("CAT"));
+        assertEquals(4, scored.getPayload("cats"));
+        assertEquals(2, scored.getPayload("ca"));
+        assertEquals(0, scored.getPayload("c"));
+        assertEquals(0, scored.getPayload("cow"));
+
+        // The payload is read through the cursor that a search already uses.
+        final TrieCursor cursor = scored.cursor();
+        assertTrue(cursor.step("cat"));
+        assertEquals(3, cursor.payload());
+        cursor.rewind(1);
+        assertEquals(0, cursor.payload());
+
+        assertFalse(trie.hasPayloads());
+        assertEquals(0, trie.getPayload("apple"));
+    }
+
+    @Test
+    void wordIdsAreDense() {
+        final BitSet ids = new BitSet();
+        trie.dump(w -> {
+            final int id = trie.getWordId(w);
+            assertFalse(ids.get(id));
+            ids.set(id);
+            assertEquals(w, trie.getWord(id));
+        });
+        assertEquals(trie.getNumberOfWords(), ids.cardinality());
+        assertEquals(trie.getNumberOfWords(), ids.length());
+
+        assertEquals(-1, trie.getWordId("applesau"));
+        assertEquals(trie.getWordId("apple"), trie.getWordId("APPLE"));
+        final TrieCursor cursor = trie.cursor();
+        assertTrue(cursor.step("apple"));
+        assertEquals(trie.getWordId("apple"), cursor.wordId());
+        assertThrows(IndexOutOfBoundsException.class, () -> trie.getWord(trie.getNumberOfWords()));
+    }
+}
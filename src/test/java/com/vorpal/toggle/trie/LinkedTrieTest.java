@@ -4,6 +4,10 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +47,12 @@ final class LinkedTrieTest {
         assertTrue(trie.isWord("aPpLe"));
     }
 
+    @Test
+    void wordsAreNotIndexed() {
+        assertEquals(-1, trie.getWordId("apple"));
+        assertThrows(IndexOutOfBoundsException.class, () -> trie.getWord(0));
+    }
+
     @Test
     void testPrefix() {
         final String applesauce = "applesauce";
@@ -55,4 +65,42 @@ final class LinkedTrieTest {
         assertFalse(trie.isPrefix("appletts"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void packPreservesWords() {
+        final LinkedTrie packed = new LinkedTrie(Stream.of("walk", "walked", "walking", "talk", "w"));
+        final List<String> before = new ArrayList<>();
+        packed.dump(before::add);
+        final LinkedTrie.TrieStatistics unpackedStats = packed.analyze();
+
+        packed.pack();
+        final List<String> after = new ArrayList<>();
+        packed.dump(after::add);
+        assertEquals(Arrays.asList("talk", "w", "walk", "walked", "walking"), before);
+        assertEquals(before, after);
+
+        // Root, w, alk, ed, ing, and talk.
+        final LinkedTrie.TrieStatistics packedStats = packed.analyze();
+        assertEquals(6, packedStats.nodes);
+        assertEquals(5, packedStats.words);
+        assertTrue(packedStats.bytes < unpackedStats.bytes);
+
+        assertTrue(packed.isWord("walking"));
+        assertFalse(packed.isWord("wal"));
+        assertTrue(packed.isPrefix("wal"));
+        assertFalse(packed.isPrefix("wax"));
+        assertFalse(packed.isPrefix("walkex"));
+        assertEquals(4, packed.countNodesVisited("walking"));
+        assertEquals(4, packed.countNodesVisited("walkex"));
+        assertEquals(1, packed.countNodesVisited("x"));
+        assertThrows(IllegalStateException.class, () -> packed.addWord("wax"));
+    }
+
+    @Test
+    void dumpIsAlphabetical() {
+        final List<String> expected = new ArrayList<>();
+        new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt")).dump(expected::add);
+        final List<String> actual = new ArrayList<>();
+        trie.dump(actual::add);
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,84 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class LoudsTrieTest {
+    private static LoudsTrie trie;
+
+    @BeforeAll
+    static void setUp() {
+        trie = new LoudsTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+    }
+
+    @Test
+    void findApple() {
+        assertTrue(trie.isWord("apple"));
+        assertTrue(trie.isWord("Apples"));
+        assertTrue(trie.isWord("applesauce"));
+        assertFalse(trie.isWord("applesau"));
+        assertTrue(trie.isPrefix("applesau"));
+        assertFalse(trie.isPrefix("xx"));
+        assertFalse(trie.isPrefix("café"));
+    }
+
+    @Test
+    void dumpMatchesDoubleArrayTrie() {
+        final List<String> expected = new ArrayList<>();
+        new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt")).dump(expected::add);
+        final List<String> actual = new ArrayList<>();
+        trie.dump(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void smallTrie() {
+        final LoudsTrie small = new LoudsTrie(Stream.of("a", "an", "and", "ant", "be"));
+        assertEquals(5, small.getNumberOfWords());
+        // root, a, b, an, be, and, ant
+        assertEquals(7, small.getNumberOfNodes());
+        assertTrue(small.isWord("ant"));
+        assertFalse(small.isWord("b"));
+        assertTrue(small.isPrefix("b"));
+        assertFalse(small.isPrefix("c"));
+    }
+
+    @Test
+    void isSuccinct() {
+        // Eight bits of label, two of structure, and one terminal flag per node, plus a small overhead.
+        assertTrue(trie.getBitsPerNode() < 12.0, "bits per node: " + trie.getBitsPerNode());
+    }
+
+    @Test
+    void rankAndSelect() {
+        final Random random = new Random(0);
+        final boolean[] bits = new boolean[10000];
+        final RankSelectBitVector.Builder builder = new RankSelectBitVector.Builder();
+        for (int i = 0; i < bits.length; ++i) {
+            bits[i] = random.nextInt(3) == 0;
+            builder.append(bits[i]);
+        }
+        final RankSelectBitVector vector = builder.build();
+        assertEquals(bits.length, vector.length());
+
+        int ones = 0;
+        int zeros = 0;
+        for (int i = 0; i < bits.length; ++i) {
+            assertEquals(bits[i], vector.get(i));
+            assertEquals(ones, vector.rank1(i));
+            if (bits[i])
+                assertEquals(i, vector.select1(++ones));
+            else
+                assertEquals(i, vector.select0(++zeros));
+        }
+        assertEquals(ones, vector.rank1(bits.length));
+        assertEquals(ones, vector.ones());
+    }
+}
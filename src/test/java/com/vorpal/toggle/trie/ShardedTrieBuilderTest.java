@@ -0,0 +1,68 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class ShardedTrieBuilderTest {
+    private static Path dictionary;
+    private static List<String> expected;
+
+    @BeforeAll
+    static void setUp() throws URISyntaxException {
+        dictionary = Paths.get(Trie.class.getResource("/dictionary.txt").toURI());
+        expected = new ArrayList<>();
+        new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt")).dump(expected::add);
+    }
+
+    private static List<String> sortedWords(final Trie trie) {
+        final List<String> words = new ArrayList<>();
+        trie.dump(words::add);
+        Collections.sort(words);
+        return words;
+    }
+
+    @Test
+    void matchesSequentialBuild() throws IOException {
+        final LinkedTrie trie = new ShardedTrieBuilder(new ForkJoinPool(4)).addFile(dictionary).build();
+        assertEquals(expected, sortedWords(trie));
+        assertEquals(expected.size(), trie.analyze().words);
+        assertTrue(trie.isWord("Applesauce"));
+        assertFalse(trie.isWord("applesau"));
+    }
+
+    @Test
+    void deduplicatesAcrossFiles() throws IOException {
+        // Split the dictionary into two overlapping halves, with some words in a different case and accented.
+        final List<String> lines = Files.readAllLines(dictionary);
+        final Path first = Files.createTempFile("words", ".txt");
+        final Path second = Files.createTempFile("words", ".txt");
+        first.toFile().deleteOnExit();
+        second.toFile().deleteOnExit();
+        Files.write(first, lines.subList(0, 2 * lines.size() / 3));
+        final List<String> rest = new ArrayList<>(lines.subList(lines.size() / 3, lines.size()));
+        rest.add("apple");
+        rest.add("Café");
+        Files.write(second, rest);
+
+        final LinkedTrie trie = new ShardedTrieBuilder().addFiles(Arrays.asList(first, second)).build();
+        final List<String> words = sortedWords(trie);
+        assertEquals(new HashSet<>(words).size(), words.size());
+        assertEquals(expected, words);
+    }
+
+    @Test
+    void missingFile() {
+        final ShardedTrieBuilder builder = new ShardedTrieBuilder().addFile(Paths.get("no/such/file.txt"));
+        assertThrows(IOException.class, builder::build);
+    }
+}
@@ -0,0 +1,174 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SymbolTrieTest {
+    private static final SymbolAlphabet alphabet = new SymbolAlphabet(Arrays.asList("A", "E", "I", "N", "QU", "T"));
+
+    private static int walk(final SymbolTrie trie, final String... symbols) {
+        int node = SymbolTrie.ROOT;
+        for (final String symbol: symbols) {
+            node = trie.transition(node, alphabet.code(symbol));
+            if (node < 0)
+                break;
+        }
+        return node;
+    }
+
+    @Test
+    void alphabetIsNormalizedAndSorted() {
+        final SymbolAlphabet a = new SymbolAlphabet(Arrays.asList("QU", "É", "a", "A", "e"));
+        assertEquals(Arrays.asList("a", "e", "qu"), a.symbols());
+        assertEquals(2, a.code("Qu"));
+        assertEquals(-1, a.code("q"));
+        assertEquals(a, new SymbolAlphabet(Arrays.asList("a", "e", "qu")));
+        assertThrows(IllegalArgumentException.class, () -> new SymbolAlphabet(Arrays.asList("a", "́")));
+    }
+
+    @Test
+    void quIsOneSymbol() {
+        final SymbolTrie trie = new SymbolTrie(new DoubleArrayTrie(Stream.of("quit", "queen", "qat", "at", "a")),
+                alphabet);
+        assertTrue(trie.isWord(walk(trie, "QU", "I", "T")));
+        assertTrue(trie.isWord(walk(trie, "QU", "E", "E", "N")));
+        assertFalse(trie.isWord(walk(trie, "QU", "E", "E")));
+        assertTrue(walk(trie, "QU", "E", "E") >= 0);
+        assertTrue(trie.isWord(walk(trie, "A")));
+        assertTrue(trie.isWord(walk(trie, "A", "T")));
+        assertFalse(trie.hasChildren(walk(trie, "A", "T")));
+
+        // There is no symbol Q, so qat cannot be spelled, and the trie contains only the nodes that can be reached.
+        assertEquals(-1, walk(trie, "A", "A"));
+        assertEquals(9, trie.getNumberOfNodes());
+
+        // The longest word is queen, of four symbols.
+        assertEquals(4, trie.getMaximumLength());
+    }
+
+    @Test
+    void spellsSameWordsAsTrie() {
+        final Trie source = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        final SymbolTrie trie = SymbolTrie.of(source, alphabet);
+        assertSame(trie, SymbolTrie.of(source, new SymbolAlphabet(alphabet.symbols())));
+
+        // Enumerate the symbol trie, and check that it spells exactly the words of the trie over the alphabet.
+        final List<String> spelled = new ArrayList<>();
+        enumerate(trie, SymbolTrie.ROOT, new StringBuilder(), spelled);
+        final List<String> expected = new ArrayList<>();
+        source.dump(w -> {
+            if (w.replace("qu", "").matches("[aeint]*"))
+                expected.add(w);
+        });
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, spelled);
+    }
+
+    private static void enumerate(final SymbolTrie trie, final int node, final StringBuilder prefix,
+                                  final List<String> words) {
+        if (trie.isWord(node))
+            words.add(prefix.toString());
+        for (int s = 0; s < alphabet.size(); ++s) {
+            final int child = trie.transition(node, s);
+            if (child < 0)
+                continue;
+            final int length = prefix.length();
+            prefix.append(alphabet.symbol(s));
+            enumerate(trie, child, prefix, words);
+            prefix.setLength(length);
+        }
+    }
+
+    @Test
+    void restrictToCountsAndSuccessors() {
+        final SymbolTrie trie = new SymbolTrie(
+                new DoubleArrayTrie(Stream.of("tent", "tint", "ten", "tan", "net", "nit", "quiet", "quit")), alphabet);
+        final int e = alphabet.code("E"), i = alphabet.code("I");
+        final int n = alphabet.code("N"), qu = alphabet.code("QU"), t = alphabet.code("T");
+
+        // One each of e, i, n, qu, and two of t: tent, ten, tint, net, nit, quiet, and quit can be spelled.
+        final int[] counts = new int[alphabet.size()];
+        counts[e] = counts[i] = counts[n] = counts[qu] = 1;
+        counts[t] = 2;
+        assertEquals(Arrays.asList("net", "nit", "quiet", "quit", "ten", "tent", "tint"), words(trie.restrict(counts)));
+
+        // Now forbid t from being followed by e, and i from being followed by t.
+        final long[] successors = new long[alphabet.size()];
+        Arrays.fill(successors, -1L);
+        successors[t] &= ~(1L << e);
+        successors[i] &= ~(1L << t);
+        assertEquals(Arrays.asList("net", "quiet", "tint"), words(trie.restrict(counts, successors)));
+        assertEquals(4, trie.restrict(counts, successors).getMaximumLength());
+
+        // Without any symbols, nothing can be spelled.
+        final SymbolTrie empty = trie.restrict(new int[alphabet.size()]);
+        assertEquals(1, empty.getNumberOfNodes());
+        assertFalse(empty.hasChildren(SymbolTrie.ROOT));
+        assertEquals(-1, empty.getMaximumLength());
+        assertThrows(IllegalArgumentException.class, () -> trie.restrict(new int[1]));
+    }
+
+    private static List<String> words(final SymbolTrie trie) {
+        final List<String> words = new ArrayList<>();
+        enumerate(trie, SymbolTrie.ROOT, new StringBuilder(), words);
+
+        // The restricted trie should contain no nodes that do not lead to words.
+        assertEquals(countNodes(trie, SymbolTrie.ROOT), trie.getNumberOfNodes());
+        return words;
+    }
+
+    private static int countNodes(final SymbolTrie trie, final int node) {
+        int count = 1;
+        for (int s = 0; s < alphabet.size(); ++s)
+            if (trie.transition(node, s) >= 0)
+                count += countNodes(trie, trie.transition(node, s));
+        return count;
+    }
+
+    @Test
+    void payloadsSurviveCompilationAndRestriction() {
+        final SymbolTrie trie = new SymbolTrie(
+                new DoubleArrayTrie(Stream.of("net", "nit", "quiet", "quit", "tent"), String::length), alphabet);
+        assertEquals(5, trie.payload(walk(trie, "QU", "I", "E", "T")));
+        assertEquals(0, trie.payload(walk(trie, "QU", "I")));
+
+        final int[] counts = new int[alphabet.size()];
+        counts[alphabet.code("QU")] = counts[alphabet.code("I")] = counts[alphabet.code("T")] = 1;
+        final SymbolTrie restricted = trie.restrict(counts);
+        assertEquals(Collections.singletonList("quit"), words(restricted));
+        assertEquals(4, restricted.payload(walk(restricted, "QU", "I", "T")));
+
+        // A trie without payloads gives 0 for every word.
+        final SymbolTrie unscored = new SymbolTrie(new DoubleArrayTrie(Stream.of("net")), alphabet);
+        assertTrue(unscored.isWord(walk(unscored, "N", "E", "T")));
+        assertEquals(0, unscored.payload(walk(unscored, "N", "E", "T")));
+    }
+
+    @Test
+    void wordIdsSurviveCompilationAndRestriction() {
+        final DoubleArrayTrie source = new DoubleArrayTrie(Stream.of("net", "nit", "quiet", "quit", "tent"));
+        final SymbolTrie trie = new SymbolTrie(source, alphabet);
+        assertTrue(trie.hasWordIds());
+        assertSame(source, trie.getDictionary());
+        assertEquals(source.getWordId("quiet"), trie.wordId(walk(trie, "QU", "I", "E", "T")));
+        assertEquals(-1, trie.wordId(walk(trie, "QU", "I")));
+
+        final int[] counts = new int[alphabet.size()];
+        counts[alphabet.code("N")] = counts[alphabet.code("I")] = counts[alphabet.code("T")] = 1;
+        final SymbolTrie restricted = trie.restrict(counts);
+        assertEquals(source.getWordId("nit"), restricted.wordId(walk(restricted, "N", "I", "T")));
+        assertSame(source, restricted.getDictionary());
+
+        // A trie that does not index its words gives no IDs.
+        final SymbolTrie unindexed = new SymbolTrie(new LinkedTrie(Stream.of("net")), alphabet);
+        assertFalse(unindexed.hasWordIds());
+        assertEquals(-1, unindexed.wordId(walk(unindexed, "N", "E", "T")));
+    }
+}
@@ -0,0 +1,97 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Check that the cursors of all the trie implementations agree with their string lookups.
+ */
+final class TrieCursorTest {
+    private static final String[] PROBES = {
+            "", "a", "ap", "apple", "applesauce", "applesau", "applesauces", "xx", "qu", "quiz", "zzz", "zzzs", "aa"
+    };
+
+    private static final List<Trie> tries = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        tries.add(new LinkedTrie(Trie.class.getResourceAsStream("/dictionary.txt")));
+
+        final LinkedTrie packed = new LinkedTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        packed.pack();
+        tries.add(packed);
+
+        final DoubleArrayTrie doubleArrayTrie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        tries.add(doubleArrayTrie);
+        tries.add(new DawgTrie(Trie.class.getResourceAsStream("/dictionary.txt")));
+        tries.add(new LoudsTrie(Trie.class.getResourceAsStream("/dictionary.txt")));
+
+        final Path snapshot = Files.createTempFile("dictionary", ".trie");
+        snapshot.toFile().deleteOnExit();
+        TrieSnapshot.write(doubleArrayTrie, snapshot);
+        tries.add(TrieSnapshot.map(snapshot));
+    }
+
+    @Test
+    void stepsAgreeWithLookups() {
+        for (final Trie trie: tries)
+            for (final String probe: PROBES) {
+                final TrieCursor cursor = trie.cursor();
+                final boolean isPrefix = cursor.step(probe);
+                assertEquals(trie.isPrefix(probe), isPrefix, probe);
+                if (isPrefix) {
+                    assertEquals(probe.length(), cursor.depth());
+                    assertEquals(trie.isWord(probe), cursor.isWord(), probe);
+                } else {
+                    assertEquals(0, cursor.depth());
+                }
+            }
+    }
+
+    @Test
+    void backtracking() {
+        for (final Trie trie: tries) {
+            final TrieCursor cursor = trie.cursor();
+            assertTrue(cursor.step("APPLE"));
+            assertTrue(cursor.isWord());
+            assertTrue(cursor.hasChildren());
+
+            // A failed step leaves the cursor where it was.
+            assertFalse(cursor.step("sx"));
+            assertEquals(5, cursor.depth());
+
+            assertTrue(cursor.step("sauce"));
+            assertTrue(cursor.isWord());
+            cursor.back();
+            assertFalse(cursor.isWord());
+            cursor.rewind(4);
+            assertFalse(cursor.isWord());
+            assertTrue(cursor.step('E'));
+            assertTrue(cursor.isWord());
+
+            cursor.reset();
+            assertEquals(0, cursor.depth());
+            assertThrows(IllegalStateException.class, cursor::back);
+            assertThrows(IllegalArgumentException.class, () -> cursor.rewind(1));
+        }
+    }
+
+    @Test
+    void leavesHaveNoChildren() {
+        for (final Trie trie: tries) {
+            final TrieCursor cursor = trie.cursor();
+            assertTrue(cursor.hasChildren());
+            assertTrue(cursor.step("zzzs"));
+            assertTrue(cursor.isWord());
+            assertFalse(cursor.hasChildren());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TrieProfileTest {
+    private static final List<String> words = Arrays.asList("walk", "walked", "walking", "talk", "talked");
+    private static final List<String> queries = Arrays.asList("walking", "talk", "xyz", "walkers", "");
+
+    @Test
+    void profileDoubleArrayTrie() {
+        final TrieProfile profile = TrieProfile.profile("dat", () -> new DoubleArrayTrie(words.stream()), queries);
+        assertEquals("dat", profile.name);
+        assertTrue(profile.buildNanos > 0);
+        assertEquals(Arrays.asList("base", "check"), Arrays.asList(profile.heapUsage.keySet().toArray()));
+        assertEquals(profile.heapUsage.get("base") + profile.heapUsage.get("check"), profile.heapBytes);
+
+        // Including the root: walking visits 8 nodes, talk 5, xyz 1, walkers 6 and the empty string 1.
+        assertEquals(queries.size(), profile.wordCost.lookups);
+        assertEquals(21, profile.wordCost.nodesVisited);
+        assertEquals(8, profile.wordCost.maximumNodesVisited);
+        assertEquals(21.0 / 5, profile.prefixCost.averageNodesVisited(), 1e-9);
+    }
+
+    @Test
+    void everyTrieEstimatesItsHeap() {
+        final LinkedTrie packed = new LinkedTrie(words.stream());
+        packed.pack();
+        for (final Trie trie: Arrays.asList(new LinkedTrie(words.stream()), packed,
+                new DoubleArrayTrie(words.stream()), new DawgTrie(words.stream()), new LoudsTrie(words.stream()))) {
+            final Map<String, Long> usage = trie.estimateHeapUsage();
+            assertFalse(usage.isEmpty());
+            usage.values().forEach(bytes -> assertTrue(bytes >= 0 && bytes % 8 == 0));
+        }
+
+        // The packed trie visits fewer nodes, and uses less heap, than the unpacked trie.
+        final LinkedTrie unpacked = new LinkedTrie(Stream.of("walking"));
+        final LinkedTrie single = new LinkedTrie(Stream.of("walking"));
+        single.pack();
+        assertEquals(8, unpacked.countNodesVisited("walking"));
+        assertEquals(2, single.countNodesVisited("walking"));
+        assertTrue(TrieProfile.profile("packed", () -> single, queries).heapBytes
+                < TrieProfile.profile("unpacked", () -> unpacked, queries).heapBytes);
+    }
+}
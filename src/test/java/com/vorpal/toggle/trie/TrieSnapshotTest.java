@@ -0,0 +1,113 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TrieSnapshotTest {
+    private static DoubleArrayTrie trie;
+    private static Path snapshot;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        snapshot = Files.createTempFile("dictionary", ".trie");
+        snapshot.toFile().deleteOnExit();
+        TrieSnapshot.write(trie, snapshot);
+    }
+
+    private static void checkSameWords(final Trie loaded) {
+        final List<String> expected = new ArrayList<>();
+        trie.dump(expected::add);
+        final List<String> actual = new ArrayList<>();
+        loaded.dump(actual::add);
+        assertEquals(expected, actual);
+
+        assertTrue(loaded.isWord("Applesauce"));
+        assertTrue(loaded.isPrefix("applesa"));
+        assertFalse(loaded.isWord("applesau"));
+        assertFalse(loaded.isPrefix("xx"));
+    }
+
+    @Test
+    void mappedSnapshotMatches() throws IOException {
+        final MappedDoubleArrayTrie mapped = TrieSnapshot.map(snapshot);
+        assertEquals(trie.getNumberOfWords(), mapped.getNumberOfWords());
+        assertEquals(trie.getCapacity(), mapped.getCapacity());
+        checkSameWords(mapped);
+    }
+
+    @Test
+    void streamedSnapshotMatches() throws IOException {
+        checkSameWords(TrieSnapshot.read(Files.newInputStream(snapshot)));
+        checkSameWords(TrieSnapshot.load(snapshot.toUri().toURL()));
+    }
+
+    @Test
+    void rejectsInvalidSnapshots() throws IOException {
+        final byte[] bytes = Files.readAllBytes(snapshot);
+
+        final byte[] badMagic = bytes.clone();
+        badMagic[0] = 0;
+        assertThrows(IOException.class, () -> TrieSnapshot.read(new ByteArrayInputStream(badMagic)));
+
+        final byte[] badVersion = bytes.clone();
+        badVersion[7] = 99;
+        assertThrows(TrieSnapshot.UnsupportedVersionException.class,
+                () -> TrieSnapshot.read(new ByteArrayInputStream(badVersion)));
+
+        final byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> TrieSnapshot.read(new ByteArrayInputStream(truncated)));
+
+        // A length whose arrays do not fit in a buffer, which would overflow an int, with or without payloads, or a
+        // negative length. 200,000,000 entries only overflow with payloads.
+        for (final int length: new int[] {300_000_000, Integer.MAX_VALUE, -1})
+            for (final int payloads: new int[] {0, 1}) {
+                final byte[] header = Arrays.copyOf(bytes, 5 * Integer.BYTES);
+                ByteBuffer.wrap(header).putInt(3 * Integer.BYTES, length).putInt(4 * Integer.BYTES, payloads);
+                assertThrows(IOException.class, () -> TrieSnapshot.read(new ByteArrayInputStream(header)));
+            }
+        final byte[] header = Arrays.copyOf(bytes, 5 * Integer.BYTES);
+        ByteBuffer.wrap(header).putInt(3 * Integer.BYTES, 200_000_000).putInt(4 * Integer.BYTES, 1);
+        assertThrows(IOException.class, () -> TrieSnapshot.read(new ByteArrayInputStream(header)));
+    }
+
+    @Test
+    void payloadsSurviveSnapshot() throws IOException {
+        final DoubleArrayTrie scored = new DoubleArrayTrie(Stream.of("queen", "quiet", "quit", "a"),
+                w -> w.hashCode() & 0xff);
+        final Path path = Files.createTempFile("scored", ".trie");
+        path.toFile().deleteOnExit();
+        TrieSnapshot.write(scored, path);
+        final MappedDoubleArrayTrie loaded = TrieSnapshot.read(Files.newInputStream(path));
+        assertTrue(loaded.hasPayloads());
+        scored.dump(w -> assertEquals(scored.getPayload(w), loaded.getPayload(w)));
+
+        final TrieCursor cursor = loaded.cursor();
+        assertTrue(cursor.step("quit"));
+        assertEquals("quit".hashCode() & 0xff, cursor.payload());
+        assertFalse(TrieSnapshot.map(snapshot).hasPayloads());
+    }
+
+    @Test
+    void wordIdsSurviveSnapshot() throws IOException {
+        final MappedDoubleArrayTrie mapped = TrieSnapshot.map(snapshot);
+        for (final String word: Arrays.asList("aa", "apple", "applesauce", "zzzs")) {
+            assertEquals(trie.getWordId(word), mapped.getWordId(word));
+            assertEquals(word, mapped.getWord(mapped.getWordId(word)));
+        }
+        assertEquals(-1, mapped.getWordId("xx"));
+    }
+}
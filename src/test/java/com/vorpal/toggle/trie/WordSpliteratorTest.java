@@ -0,0 +1,121 @@
+package com.vorpal.toggle.trie;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class WordSpliteratorTest {
+    private static List<String> dictionary;
+    private static List<Trie> tries;
+
+    @BeforeAll
+    static void setUp() {
+        final DoubleArrayTrie trie = new DoubleArrayTrie(Trie.class.getResourceAsStream("/dictionary.txt"));
+        dictionary = new ArrayList<>();
+        trie.dump(dictionary::add);
+
+        // A sample of the dictionary, for the tries that take longer to build.
+        final List<String> sample = new ArrayList<>();
+        for (int i = 0; i < dictionary.size(); i += 7)
+            sample.add(dictionary.get(i));
+        final LinkedTrie packed = new LinkedTrie(sample.stream());
+        packed.pack();
+        tries = Arrays.asList(trie, new LinkedTrie(sample.stream()), packed,
+                new DawgTrie(sample.stream()), new LoudsTrie(sample.stream()));
+    }
+
+    private static List<String> dump(final Trie trie) {
+        final List<String> words = new ArrayList<>();
+        trie.dump(words::add);
+        return words;
+    }
+
+    @Test
+    void wordsMatchDump() {
+        for (final Trie trie: tries) {
+            final List<String> expected = dump(trie);
+            assertEquals(expected, trie.words().collect(Collectors.toList()));
+
+            final List<String> iterated = new ArrayList<>();
+            for (final String word: trie)
+                iterated.add(word);
+            assertEquals(expected, iterated);
+        }
+        assertEquals(dictionary.size(), tries.get(0).words().count());
+    }
+
+    @Test
+    void wordsWithPrefix() {
+        for (final Trie trie: tries)
+            for (final String prefix: Arrays.asList("", "a", "Apple", "qui", "zz", "xyzzy", "qz"))
+                assertEquals(dump(trie).stream().filter(w -> w.startsWith(prefix.toLowerCase()))
+                                .collect(Collectors.toList()),
+                        trie.wordsWithPrefix(prefix).collect(Collectors.toList()), prefix);
+    }
+
+    @Test
+    void wordsInRange() {
+        final List<String> bounds = Arrays.asList("a", "aa", "apple", "applf", "mz", "n", "qua", "zzzzz", "~");
+        for (final Trie trie: tries) {
+            final List<String> words = dump(trie);
+            for (final String from: bounds)
+                for (final String to: bounds)
+                    assertEquals(words.stream().filter(w -> w.compareTo(from) >= 0 && w.compareTo(to) < 0)
+                                    .collect(Collectors.toList()),
+                            trie.wordsInRange(from, to).collect(Collectors.toList()), from + " to " + to);
+            assertEquals(words.stream().filter(w -> w.compareTo("m") < 0).collect(Collectors.toList()),
+                    trie.wordsInRange(null, "m").collect(Collectors.toList()));
+            assertEquals(words.stream().filter(w -> w.compareTo("m") >= 0).collect(Collectors.toList()),
+                    trie.wordsInRange("M", null).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void callersCanStopEarly() {
+        final Trie trie = tries.get(0);
+        assertEquals(dictionary.subList(0, 10), trie.words().limit(10).collect(Collectors.toList()));
+        final Iterator<String> it = trie.wordsWithPrefix("apple").iterator();
+        assertEquals("apple", it.next());
+        assertTrue(it.hasNext());
+    }
+
+    @Test
+    void splitsBetweenSubtrees() {
+        for (final Trie trie: tries) {
+            final List<String> expected = dump(trie);
+            assertEquals(expected, trie.words().parallel().collect(Collectors.toList()));
+            assertEquals(expected.stream().filter(w -> w.startsWith("st")).collect(Collectors.toList()),
+                    trie.wordsWithPrefix("st").parallel().collect(Collectors.toList()));
+            assertEquals(expected.stream().filter(w -> w.compareTo("bar") >= 0 && w.compareTo("fop") < 0)
+                            .collect(Collectors.toList()),
+                    trie.wordsInRange("bar", "fop").parallel().collect(Collectors.toList()));
+        }
+
+        // Split repeatedly, and check that the parts partition the words in order.
+        final Trie trie = tries.get(0);
+        final Deque<Spliterator<String>> parts = new ArrayDeque<>();
+        parts.add(trie.spliterator());
+        final List<Spliterator<String>> leaves = new ArrayList<>();
+        while (!parts.isEmpty() && leaves.size() + parts.size() < 200) {
+            final Spliterator<String> part = parts.removeFirst();
+            final Spliterator<String> first = part.trySplit();
+            if (first == null) {
+                leaves.add(part);
+                continue;
+            }
+            parts.addFirst(part);
+            parts.addFirst(first);
+        }
+        leaves.addAll(parts);
+        assertTrue(leaves.size() > 50);
+        final List<String> words = new ArrayList<>();
+        for (final Spliterator<String> leaf: leaves)
+            words.addAll(StreamSupport.stream(leaf, false).collect(Collectors.toList()));
+        assertEquals(dictionary, words);
+    }
+}